@@ -0,0 +1,109 @@
+package benchmark;
+
+import core.CodeFactory;
+import entity.EntityInfo;
+import entity.FieldInfo;
+import entity.GenerateInfo;
+import entity.IndexInfo;
+import entity.ProjectionInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 代码生成的基准测试，使用不同字段数量的数据类跑完整的生成流程，
+ * 通过GCProfiler同时输出吞吐量和内存分配速率(gc.alloc.rate.norm即每次生成分配的字节数)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodeFactoryBenchmark {
+
+    private static final String[] TYPES = {"int", "long", "Long", "double", "boolean", "String", "float", "Integer"};
+
+    @Param({"5", "50", "500"})
+    public int fieldCount;
+
+    private EntityInfo entity;
+    private GenerateInfo info;
+    private GenerateInfo defaultKeyInfo;
+
+    @Setup
+    public void setup() {
+        ArrayList<FieldInfo> fields = new ArrayList<>();
+        for (int i = 0; i < fieldCount; i++) {
+            // 驼峰命名的多个单词，覆盖camel2underline的拆分
+            fields.add(new FieldInfo("syntheticFieldName" + i + "Value", TYPES[i % TYPES.length]));
+        }
+        entity = new EntityInfo("SyntheticEntity", "com.example.bean", fields);
+
+        info = GenerateInfo.ofAllFields(entity, fields.get(1));
+        ArrayList<FieldInfo> indexFields = new ArrayList<>();
+        indexFields.add(fields.get(fields.size() - 1));
+        info.getIndexes().add(new IndexInfo(indexFields, false));
+        ArrayList<FieldInfo> projectionFields = new ArrayList<>(fields.subList(0, Math.min(3, fields.size())));
+        info.getProjections().add(new ProjectionInfo("SyntheticBrief", projectionFields));
+
+        defaultKeyInfo = GenerateInfo.ofAllFields(entity, null);
+    }
+
+    @Benchmark
+    public String createTable() {
+        return CodeFactory.genCreateTableCode(entity, info.getFields(), info.getPriKeyFields());
+    }
+
+    @Benchmark
+    public String beanColumns() {
+        return CodeFactory.genBeanColumnsCode(entity, info.getFields(), info.getPriKeyFields());
+    }
+
+    @Benchmark
+    public String dao() {
+        return CodeFactory.genDaoCode(entity, info, "com.example.db");
+    }
+
+    @Benchmark
+    public String daoDefaultKey() {
+        return CodeFactory.genDaoCode(entity, defaultKeyInfo, "com.example.db");
+    }
+
+    /**
+     * 插件中一个数据类的完整生成流程，包括指纹计算
+     */
+    @Benchmark
+    public int fullPipeline() {
+        String createTable = CodeFactory.withFingerprint(CodeFactory.genSchemaComment(CodeFactory.genTableSchema(entity, info))
+                + CodeFactory.genCreateTableCode(entity, info.getFields(), info.getPriKeyFields()));
+        String createIndex = CodeFactory.withFingerprint(CodeFactory.genCreateIndexCode(entity, info.getIndexes()));
+        String columns = CodeFactory.withFingerprint(CodeFactory.genBeanColumnsCode(entity, info.getFields(), info.getPriKeyFields()));
+        String dao = CodeFactory.withFingerprint(CodeFactory.genDaoCode(entity, info, "com.example.db"));
+        return createTable.length() + createIndex.length() + columns.length() + dao.length();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CodeFactoryBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
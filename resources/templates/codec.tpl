@@ -0,0 +1,160 @@
+## 集合字段的编解码，字段用到时生成一次
+package ${package};
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+
+/**
+ * 集合字段的二进制编码，存储在BLOB列中。
+ * 格式为元素个数加每个元素的类型标记和值，整数使用zigzag变长编码
+ */
+public final class BlobCodec {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final int TAG_NULL = 0;
+	private static final int TAG_STRING = 1;
+	private static final int TAG_INT = 2;
+	private static final int TAG_LONG = 3;
+	private static final int TAG_DOUBLE = 4;
+	private static final int TAG_FLOAT = 5;
+	private static final int TAG_TRUE = 6;
+	private static final int TAG_FALSE = 7;
+
+	private BlobCodec() {
+		// private
+	}
+
+	public static byte[] writeCollection(Collection<?> values) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + values.size() * 4);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			writeVarLong(out, values.size());
+			for (Object value : values) {
+				if (value == null) {
+					out.writeByte(TAG_NULL);
+				} else if (value instanceof String) {
+					byte[] utf8 = ((String) value).getBytes(UTF_8);
+					out.writeByte(TAG_STRING);
+					writeVarLong(out, utf8.length);
+					out.write(utf8);
+				} else if (value instanceof Integer) {
+					out.writeByte(TAG_INT);
+					writeVarLong(out, zigzag((Integer) value));
+				} else if (value instanceof Long) {
+					out.writeByte(TAG_LONG);
+					writeVarLong(out, zigzag((Long) value));
+				} else if (value instanceof Double) {
+					out.writeByte(TAG_DOUBLE);
+					out.writeDouble((Double) value);
+				} else if (value instanceof Float) {
+					out.writeByte(TAG_FLOAT);
+					out.writeFloat((Float) value);
+				} else if (value instanceof Boolean) {
+					out.writeByte((Boolean) value ? TAG_TRUE : TAG_FALSE);
+				} else {
+					throw new IllegalArgumentException("unsupported element type: " + value.getClass());
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	public static <T> ArrayList<T> readList(byte[] blob) {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(blob));
+		try {
+			int size = (int) readVarLong(in);
+			ArrayList<T> values = new ArrayList<>(size);
+			readElements(in, size, values);
+			return values;
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	public static <T> LinkedHashSet<T> readSet(byte[] blob) {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(blob));
+		try {
+			int size = (int) readVarLong(in);
+			LinkedHashSet<T> values = new LinkedHashSet<>(Math.max(16, size * 4 / 3 + 1));
+			readElements(in, size, values);
+			return values;
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> void readElements(DataInputStream in, int size, Collection<T> values) throws IOException {
+		for (int i = 0; i < size; i++) {
+			int tag = in.readUnsignedByte();
+			Object value;
+			switch (tag) {
+				case TAG_NULL:
+					value = null;
+					break;
+				case TAG_STRING:
+					byte[] utf8 = new byte[(int) readVarLong(in)];
+					in.readFully(utf8);
+					value = new String(utf8, UTF_8);
+					break;
+				case TAG_INT:
+					value = (int) unzigzag(readVarLong(in));
+					break;
+				case TAG_LONG:
+					value = unzigzag(readVarLong(in));
+					break;
+				case TAG_DOUBLE:
+					value = in.readDouble();
+					break;
+				case TAG_FLOAT:
+					value = in.readFloat();
+					break;
+				case TAG_TRUE:
+				case TAG_FALSE:
+					value = tag == TAG_TRUE;
+					break;
+				default:
+					throw new IOException("unknown element tag: " + tag);
+			}
+			values.add((T) value);
+		}
+	}
+
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("malformed varint");
+	}
+}
@@ -0,0 +1,6 @@
+public interface ${name}${!key? extends BaseColumns} {
+	String TABLE_NAME = "${tableName}";
+#each fields as field
+	String ${field.column} = "${field.columnValue}";
+#end
+}
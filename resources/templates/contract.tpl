@@ -0,0 +1,11 @@
+package ${package};
+
+import android.provider.BaseColumns;
+
+public final class DataContract {
+
+	private DataContract() {
+		// private
+	}
+
+}
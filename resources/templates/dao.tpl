@@ -0,0 +1,1144 @@
+## DAO模板，变量见core.EntityModel，字段变量见core.FieldModel
+#define bind
+#if bind.primitive
+stmt.${bind.bindMethod}(${bind.index}, ${bind.bindValue});
+#else
+if (${bind.getter} == null) {
+	stmt.bindNull(${bind.index});
+} else {
+	stmt.${bind.bindMethod}(${bind.index}, ${bind.bindValue});
+}
+#end
+#end
+## 逐行读取游标到datas列表
+#define readRows
+RowMapper mapper = new RowMapper(cursor);
+do {
+	datas.add(mapper.map(cursor));
+} while (cursor.moveToNext());
+#end
+package ${package};
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
+#if cache
+import android.util.LruCache;
+#end
+import ${qualifiedName};
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+#if cache
+import java.util.concurrent.atomic.AtomicInteger;
+#end
+
+public class ${dao} {
+	private DatabaseHelper helper;
+	private static volatile ${dao} instance = null;
+
+	// 流式读取时每次查询的行数
+	private static final int STREAM_PAGE_SIZE = 500;
+
+	private static final String[] COLUMNS = {
+#each fields as field
+			${table}.${field.column}${!loop.last?,}
+#end
+	};
+#if key
+	private static final String[] PAGE_COLUMNS = COLUMNS;
+#else
+	private static final String[] PAGE_COLUMNS = {
+#each fields as field
+			${table}.${field.column},
+#end
+			${table}._ID
+	};
+#end
+	private static final String SELECT_COLUMNS = TextUtils.join(", ", COLUMNS);
+#each projections as projection
+	private static final String[] ${projection.columnsConst} = {
+#each projection.fields as field
+			${table}.${field.column}${!loop.last?,}
+#end
+	};
+#end
+
+	// SQLite单条语句最多绑定999个参数，3.8.8之前VALUES最多500行
+	private static final int MAX_BIND_ARGS = 999;
+	private static final int MAX_INSERT_ROWS = 500;
+	private static final int INSERT_COLUMN_COUNT = ${columnCount};
+	// 列数超过MAX_BIND_ARGS时至少每次插入一行
+	private static final int INSERT_CHUNK_ROWS = Math.max(1, Math.min(MAX_INSERT_ROWS, MAX_BIND_ARGS / INSERT_COLUMN_COUNT));
+	private static final String INSERT_SQL_PREFIX = "INSERT INTO " + ${table}.TABLE_NAME + " ("
+#each fields as field
+			+ ${table}.${field.column}${!loop.last? + ", "}
+#end
+			+ ") VALUES ";
+	private static final String INSERT_ROW_SQL = "(${insertPlaceholders})";
+	private static final String INSERT_SQL = INSERT_SQL_PREFIX + INSERT_ROW_SQL;
+#if key
+## 只有主键一列时没有可更新的列，不生成update方法
+#if updateFields
+	private static final String UPDATE_SQL = "UPDATE " + ${table}.TABLE_NAME + " SET "
+#each updateFields as field
+			+ ${!loop.first?", " + }${table}.${field.column} + "=?"
+#end
+			+ " WHERE " + ${table}.${key.column} + "=?";
+	private static final String UPDATE_SQL_PREFIX = "UPDATE " + ${table}.TABLE_NAME + " SET ";
+	private static final String UPDATE_SQL_SUFFIX = " WHERE " + ${table}.${key.column} + "=?";
+#end
+	private static final String DELETE_SQL = "DELETE FROM " + ${table}.TABLE_NAME
+			+ " WHERE " + ${table}.${key.column} + "=?";
+	private static final String EXISTS_SQL = "SELECT EXISTS(SELECT 1 FROM " + ${table}.TABLE_NAME
+			+ " WHERE " + ${table}.${key.column} + "=?)";
+	private static final String DELETE_BY_KEYS_SQL_PREFIX = "DELETE FROM " + ${table}.TABLE_NAME + " WHERE ";
+#if upsertUpdate
+	// 主键冲突时更新已有行，需要SQLite 3.24(Android 11)
+	private static final String UPSERT_SQL = INSERT_SQL + " ON CONFLICT(" + ${table}.${key.column} + ") DO "
+#if updateFields
+			+ "UPDATE SET "
+#each updateFields as field
+			+ ${!loop.first?", " + }${table}.${field.column} + "=excluded." + ${table}.${field.column}${loop.last?;}
+#end
+#else
+			+ "NOTHING";
+#end
+#else
+	// 主键冲突时删除旧行后插入
+	private static final String UPSERT_SQL = "INSERT OR REPLACE INTO " + ${table}.TABLE_NAME
+			+ " (" + SELECT_COLUMNS + ") VALUES " + INSERT_ROW_SQL;
+#end
+	// 批量upsert每个事务写入的行数
+	private static final int UPSERT_TRANSACTION_ROWS = 1000;
+	// IN列表每批最多的主键数量，需为2的幂且不超过绑定参数上限
+	private static final int KEY_CHUNK_SIZE = 512;
+#end
+
+	// 预编译语句只在持有statementLock时使用
+	private final Object statementLock = new Object();
+	private SQLiteDatabase statementDb;
+	private final HashMap<String, SQLiteStatement> statements = new HashMap<>();
+	private SQLiteStatement insertChunkStmt;
+	private SQLiteStatement insertTailStmt;
+	private int insertTailRows;
+#if cache
+
+	// 按主键缓存的对象，写入时失效。返回的对象是共享的，调用方不要修改
+	private static final int CACHE_SIZE = ${cacheSize};
+	private final LruCache<${key.boxedType}, ${name}> cache = new LruCache<>(CACHE_SIZE);
+	private final Object cacheLock = new Object();
+	// 每次写入加一，查询期间有写入时查到的对象可能已过期，不放入缓存
+	private volatile long cacheVersion;
+	// 只统计get的命中，exists等内部查找也会访问cache，不使用LruCache自带的计数
+	private final AtomicInteger cacheHitCount = new AtomicInteger();
+	private final AtomicInteger cacheMissCount = new AtomicInteger();
+#end
+
+	public static ${dao} getInstance() {
+		if (instance == null) {
+			synchronized (${dao}.class) {
+				if (instance == null) {
+					instance = new ${dao}();
+				}
+			}
+		}
+		return instance;
+	}
+
+	private ${dao}() {
+		helper = DatabaseHelper.getInstance();
+	}
+
+	public void add${name}(${name} data) {
+		SQLiteDatabase db = helper.getWritableDatabase();
+		beginWrite(db);
+		try {
+			synchronized (statementLock) {
+				SQLiteStatement stmt = getStatement(db, INSERT_SQL);
+				bindInsertArgs(stmt, 0, data);
+				stmt.executeInsert();
+				stmt.clearBindings();
+			}
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+#if cache
+		invalidateCache(${key.getter});
+#end
+	}
+
+	public void add${name}List(ArrayList<${name}> datas) {
+		if (datas == null || datas.isEmpty()) {
+			return;
+		}
+
+		SQLiteDatabase db = helper.getWritableDatabase();
+		beginWrite(db);
+		try {
+			synchronized (statementLock) {
+				// 事务批处理，每条语句插入多行
+				int offset = 0;
+				while (offset < datas.size()) {
+					int rows = Math.min(INSERT_CHUNK_ROWS, datas.size() - offset);
+					SQLiteStatement stmt = getInsertStatement(db, rows);
+					for (int row = 0; row < rows; row++) {
+						bindInsertArgs(stmt, row * INSERT_COLUMN_COUNT, datas.get(offset + row));
+					}
+					stmt.execute();
+					stmt.clearBindings();
+					offset += rows;
+				}
+			}
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+#if cache
+		for (${name} data : datas) {
+			invalidateCache(${key.getter});
+		}
+#end
+	}
+
+	private void bindInsertArgs(SQLiteStatement stmt, int offset, ${name} data) {
+#each insertBinds as bind
+		#include bind
+#end
+	}
+
+	private SQLiteStatement getInsertStatement(SQLiteDatabase db, int rows) {
+		checkStatementDb(db);
+		if (rows == INSERT_CHUNK_ROWS) {
+			if (insertChunkStmt == null) {
+				insertChunkStmt = db.compileStatement(genInsertSql(rows));
+			}
+			return insertChunkStmt;
+		}
+
+		// 只保留最近一次的剩余块语句，相同数量的批量插入可以直接复用
+		if (insertTailStmt == null || insertTailRows != rows) {
+			if (insertTailStmt != null) {
+				insertTailStmt.close();
+			}
+			insertTailStmt = db.compileStatement(genInsertSql(rows));
+			insertTailRows = rows;
+		}
+		return insertTailStmt;
+	}
+
+	private static String genInsertSql(int rows) {
+		StringBuilder sql = new StringBuilder(INSERT_SQL_PREFIX);
+		for (int i = 0; i < rows; i++) {
+			sql.append(i == 0 ? "" : ", ").append(INSERT_ROW_SQL);
+		}
+		return sql.toString();
+	}
+
+	public ArrayList<${name}> get${name}List() {
+		SQLiteDatabase db = helper.getReadableDatabase();
+		ArrayList<${name}> datas = new ArrayList<>();
+		Cursor cursor = null;
+		try {
+			cursor = db.query(${table}.TABLE_NAME,
+					COLUMNS,
+					null,
+					null,
+					null,
+					null,
+					null);
+			if (cursor != null && cursor.moveToFirst()) {
+				#include readRows
+			}
+		} finally {
+			if (cursor != null) cursor.close();
+		}
+		return datas;
+	}
+
+	public Page get${name}Page(int limit) {
+		return query${name}Page(null, limit);
+	}
+
+	public Page get${name}Page(${pageKeyType} afterKey, int limit) {
+		return query${name}Page(${pageAfterKey}, limit);
+	}
+
+	private Page query${name}Page(String afterKey, int limit) {
+		SQLiteDatabase db = helper.getReadableDatabase();
+		ArrayList<${name}> datas = new ArrayList<>();
+		${pageKeyType} nextKey = ${pageKeyInit};
+		Cursor cursor = null;
+		try {
+			cursor = queryPageCursor(db, afterKey, limit);
+			if (cursor != null && cursor.moveToFirst()) {
+				#include readRows
+				cursor.moveToLast();
+				nextKey = ${pageNextKey};
+			}
+		} finally {
+			if (cursor != null) cursor.close();
+		}
+		return new Page(datas, nextKey, datas.size() == limit);
+	}
+
+	private Cursor queryPageCursor(SQLiteDatabase db, String afterKey, int limit) {
+		return db.query(${table}.TABLE_NAME,
+				PAGE_COLUMNS,
+				afterKey == null ? null : ${table}.${pageKeyColumn} + ">?",
+				afterKey == null ? null : new String[]{ afterKey },
+				null,
+				null,
+				${table}.${pageKeyColumn} + " ASC",
+				String.valueOf(limit));
+	}
+
+	public void stream${name}List(RowCallback callback) {
+		SQLiteDatabase db = helper.getReadableDatabase();
+		String afterArg = null;
+		int count;
+		do {
+			count = 0;
+			Cursor cursor = null;
+			try {
+				cursor = queryPageCursor(db, afterArg, STREAM_PAGE_SIZE);
+				if (cursor != null && cursor.moveToFirst()) {
+					RowMapper mapper = new RowMapper(cursor);
+					do {
+						callback.onRow(mapper.map(cursor));
+						count++;
+					} while (cursor.moveToNext());
+					// 和分页查询一样按类型读取主键再转为查询参数，不经过列的文本形式
+					cursor.moveToLast();
+					${pageKeyType} afterKey = ${pageNextKey};
+					afterArg = ${pageAfterKey};
+				}
+			} finally {
+				if (cursor != null) cursor.close();
+			}
+		} while (count == STREAM_PAGE_SIZE);
+	}
+
+	public void forEach${name}(RowVisitor visitor) {
+		scan${name}(null, null, visitor);
+	}
+
+## 所有行填充到同一个对象中，遍历时不为每行创建对象
+	public void scan${name}(String where, String[] whereArgs, RowVisitor visitor) {
+		SQLiteDatabase db = helper.getReadableDatabase();
+		Cursor cursor = null;
+		try {
+			cursor = db.query(${table}.TABLE_NAME,
+					COLUMNS,
+					where,
+					whereArgs,
+					null,
+					null,
+					null);
+			if (cursor != null && cursor.moveToFirst()) {
+				RowMapper mapper = new RowMapper(cursor);
+				${name} data = new ${name}();
+				do {
+					mapper.fill(cursor, data);
+				} while (visitor.visit(data) && cursor.moveToNext());
+			}
+		} finally {
+			if (cursor != null) cursor.close();
+		}
+	}
+
+	public Query query() {
+		return new Query();
+	}
+
+	public long count${name}() {
+		return count${name}(null, null);
+	}
+
+	public long count${name}(String where, String[] whereArgs) {
+		return simpleQueryForLong(genSelectSql("COUNT(*)", where), whereArgs);
+	}
+
+	public boolean exists${name}(String where, String[] whereArgs) {
+		return simpleQueryForLong("SELECT EXISTS(" + genSelectSql("1", where) + ")", whereArgs) != 0;
+	}
+
+## 数值列的聚合在SQL中计算，没有数据时min/max/avg返回null
+#each aggregateFields as field
+	public ${field.aggregateType} sum${name}${field.upperName}() {
+		return sum${name}${field.upperName}(null, null);
+	}
+
+	public ${field.aggregateType} sum${name}${field.upperName}(String where, String[] whereArgs) {
+#if field.integral
+		return simpleQueryForLong(genSelectSql("SUM(" + ${table}.${field.column} + ")", where), whereArgs);
+#else
+		return queryForDouble(genSelectSql("TOTAL(" + ${table}.${field.column} + ")", where), whereArgs);
+#end
+	}
+
+	public ${field.aggregateBoxedType} min${name}${field.upperName}() {
+		return min${name}${field.upperName}(null, null);
+	}
+
+	public ${field.aggregateBoxedType} min${name}${field.upperName}(String where, String[] whereArgs) {
+#if field.integral
+		return queryForLong(genSelectSql("MIN(" + ${table}.${field.column} + ")", where), whereArgs);
+#else
+		return queryForDouble(genSelectSql("MIN(" + ${table}.${field.column} + ")", where), whereArgs);
+#end
+	}
+
+	public ${field.aggregateBoxedType} max${name}${field.upperName}() {
+		return max${name}${field.upperName}(null, null);
+	}
+
+	public ${field.aggregateBoxedType} max${name}${field.upperName}(String where, String[] whereArgs) {
+#if field.integral
+		return queryForLong(genSelectSql("MAX(" + ${table}.${field.column} + ")", where), whereArgs);
+#else
+		return queryForDouble(genSelectSql("MAX(" + ${table}.${field.column} + ")", where), whereArgs);
+#end
+	}
+
+	public Double avg${name}${field.upperName}() {
+		return avg${name}${field.upperName}(null, null);
+	}
+
+	public Double avg${name}${field.upperName}(String where, String[] whereArgs) {
+		return queryForDouble(genSelectSql("AVG(" + ${table}.${field.column} + ")", where), whereArgs);
+	}
+
+#end
+#each projections as projection
+	public ArrayList<${projection.name}> get${projection.name}List() {
+		SQLiteDatabase db = helper.getReadableDatabase();
+		ArrayList<${projection.name}> datas = new ArrayList<>();
+		Cursor cursor = null;
+		try {
+			cursor = db.query(${table}.TABLE_NAME,
+					${projection.columnsConst},
+					null,
+					null,
+					null,
+					null,
+					null);
+			if (cursor != null && cursor.moveToFirst()) {
+#each projection.fields as field
+				int ${field.indexVar} = cursor.getColumnIndex(${table}.${field.column});
+#end
+				do {
+					${projection.name} data = new ${projection.name}();
+#each projection.fields as field
+					data.${field.name} = ${field.cursorValue};
+#end
+					datas.add(data);
+				} while (cursor.moveToNext());
+			}
+		} finally {
+			if (cursor != null) cursor.close();
+		}
+		return datas;
+	}
+
+#end
+	public void delete${name}List() {
+		SQLiteDatabase db = helper.getWritableDatabase();
+		db.delete(${table}.TABLE_NAME, null, null);
+#if cache
+		clearCache();
+#end
+	}
+
+#each indexes as index
+## 唯一索引返回单条数据，普通索引返回列表
+#if index.unique
+	public ${name} get${name}By${index.suffix}(${index.params}) {
+#else
+	public ArrayList<${name}> get${name}ListBy${index.suffix}(${index.params}) {
+#end
+#each index.nullableFields as field
+		if(${field.name} == null) {
+			return ${index.unique?null}${!index.unique?new ArrayList<>()};
+		}
+#end
+#if index.nullableFields
+
+#end
+		SQLiteDatabase db = helper.getReadableDatabase();
+#if index.unique
+		${name} data = null;
+#else
+		ArrayList<${name}> datas = new ArrayList<>();
+#end
+		Cursor cursor = null;
+		try {
+			cursor = db.query(${table}.TABLE_NAME,
+					COLUMNS,
+					${index.selection},
+					new String[]{ ${index.selectionArgs} },
+					null,
+					null,
+					null);
+			if (cursor != null && cursor.moveToFirst()) {
+#if index.unique
+				data = new RowMapper(cursor).map(cursor);
+#else
+				#include readRows
+#end
+			}
+		} finally {
+			if (cursor != null) cursor.close();
+		}
+		return ${index.unique?data}${!index.unique?datas};
+	}
+
+#end
+## 以上是基本方法，如果包含主键，则新建用主键"修改"、"获取"、"删除"几个方法
+#if key
+#if updateFields
+	public void update${name}(${name} data) {
+		SQLiteDatabase db = helper.getWritableDatabase();
+		beginWrite(db);
+		try {
+			synchronized (statementLock) {
+				SQLiteStatement stmt = getStatement(db, UPDATE_SQL);
+				bindUpdateArgs(stmt, data);
+				stmt.executeUpdateDelete();
+				stmt.clearBindings();
+			}
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+#if cache
+		invalidateCache(${key.getter});
+#end
+	}
+
+#end
+	public void upsert${name}(${name} data) {
+		SQLiteDatabase db = helper.getWritableDatabase();
+		beginWrite(db);
+		try {
+			synchronized (statementLock) {
+				SQLiteStatement stmt = getStatement(db, UPSERT_SQL);
+				bindInsertArgs(stmt, 0, data);
+				stmt.execute();
+				stmt.clearBindings();
+			}
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+#if upsertClearsCache
+		// REPLACE可能删除了唯一索引冲突的其它行
+		clearCache();
+#else
+#if cache
+		invalidateCache(${key.getter});
+#end
+#end
+	}
+
+## 每UPSERT_TRANSACTION_ROWS行提交一次，事务之间其它线程可以写入，失败时之前提交的行已生效
+	public void upsert${name}List(ArrayList<${name}> datas) {
+		if (datas == null || datas.isEmpty()) {
+			return;
+		}
+
+		SQLiteDatabase db = helper.getWritableDatabase();
+		for (int offset = 0; offset < datas.size(); offset += UPSERT_TRANSACTION_ROWS) {
+			int end = Math.min(datas.size(), offset + UPSERT_TRANSACTION_ROWS);
+			beginWrite(db);
+			try {
+				synchronized (statementLock) {
+					SQLiteStatement stmt = getStatement(db, UPSERT_SQL);
+					for (int i = offset; i < end; i++) {
+						bindInsertArgs(stmt, 0, datas.get(i));
+						stmt.execute();
+						stmt.clearBindings();
+					}
+				}
+				db.setTransactionSuccessful();
+			} finally {
+				db.endTransaction();
+			}
+#if upsertClearsCache
+			// REPLACE可能删除了唯一索引冲突的其它行
+			clearCache();
+#else
+#if cache
+			for (int i = offset; i < end; i++) {
+				${name} data = datas.get(i);
+				invalidateCache(${key.getter});
+			}
+#end
+#end
+		}
+	}
+
+#if updateFields
+	public void update${name}List(ArrayList<${name}> datas) {
+		if (datas == null || datas.isEmpty()) {
+			return;
+		}
+
+		SQLiteDatabase db = helper.getWritableDatabase();
+		beginWrite(db);
+		try {
+			synchronized (statementLock) {
+				SQLiteStatement stmt = getStatement(db, UPDATE_SQL);
+				for (${name} data : datas) {
+					bindUpdateArgs(stmt, data);
+					stmt.executeUpdateDelete();
+					stmt.clearBindings();
+				}
+			}
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+#if cache
+		for (${name} data : datas) {
+			invalidateCache(${key.getter});
+		}
+#end
+	}
+
+	private void bindUpdateArgs(SQLiteStatement stmt, ${name} data) {
+#each updateBinds as bind
+		#include bind
+#end
+	}
+
+## 只更新和oldData相比变化的列，没有变化时不写入，返回是否写入。两个对象的主键需相同
+	public boolean update${name}Changed(${name} oldData, ${name} data) {
+		StringBuilder sql = new StringBuilder(UPDATE_SQL_PREFIX);
+		int count = 0;
+#each updateFields as field
+		boolean ${field.name}Changed = ${field.changed};
+		if (${field.name}Changed) {
+			sql.append(count++ == 0 ? "" : ", ").append(${table}.${field.column}).append("=?");
+		}
+#end
+		if (count == 0) {
+			return false;
+		}
+		sql.append(UPDATE_SQL_SUFFIX);
+
+		SQLiteDatabase db = helper.getWritableDatabase();
+		beginWrite(db);
+		try {
+			// 变化的列组合最多有2^n种，语句不放入statements缓存，每次编译后关闭
+			SQLiteStatement stmt = db.compileStatement(sql.toString());
+			try {
+				int index = 0;
+#each changedBinds as bind
+				if (${bind.name}Changed) {
+					#include bind
+				}
+#end
+				stmt.${key.bindMethod}(++index, ${key.bindValue});
+				stmt.executeUpdateDelete();
+			} finally {
+				stmt.close();
+			}
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+#if cache
+		invalidateCache(${key.getter});
+#end
+		return true;
+	}
+#end
+
+	public ${name} get${name}(${key.declaredType} primaryKey) {
+#if !key.primitive
+		if(primaryKey == null) {
+			return null;
+		}
+
+#end
+#if cache
+		${name} cached = cache.get(primaryKey);
+		if (cached != null) {
+			cacheHitCount.incrementAndGet();
+			return cached;
+		}
+		cacheMissCount.incrementAndGet();
+		long version = cacheVersion;
+
+#end
+		SQLiteDatabase db = helper.getReadableDatabase();
+		${name} data = null;
+		Cursor cursor = null;
+		try {
+			cursor = db.query(${table}.TABLE_NAME,
+					COLUMNS,
+					${table}.${key.column} + "=?",
+					new String[]{ ${keyArg} },
+					null,
+					null,
+					null);
+			if (cursor != null && cursor.moveToFirst()) {
+				data = new RowMapper(cursor).map(cursor);
+			}
+		} finally {
+			if (cursor != null) cursor.close();
+		}
+#if cache
+		if (data != null) {
+			synchronized (cacheLock) {
+				if (version == cacheVersion) {
+					cache.put(primaryKey, data);
+				}
+			}
+		}
+#end
+		return data;
+	}
+
+	public boolean exists${name}(${key.declaredType} primaryKey) {
+#if !key.primitive
+		if(primaryKey == null) {
+			return false;
+		}
+
+#end
+#if cache
+		if (cache.get(primaryKey) != null) {
+			return true;
+		}
+
+#end
+		return simpleQueryForLong(EXISTS_SQL, new String[]{ ${keyArg} }) != 0;
+	}
+
+	public void delete${name}(${key.declaredType} primaryKey) {
+#if !key.primitive
+		if(primaryKey == null) {
+			return;
+		}
+
+#end
+		SQLiteDatabase db = helper.getWritableDatabase();
+		beginWrite(db);
+		try {
+			synchronized (statementLock) {
+				SQLiteStatement stmt = getStatement(db, DELETE_SQL);
+				stmt.${key.bindMethod}(1, ${keyBindValue});
+				stmt.executeUpdateDelete();
+				stmt.clearBindings();
+			}
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+#if cache
+		invalidateCache(primaryKey);
+#end
+	}
+
+## 主键分批放入IN列表，每批参数个数补齐到2的幂，相同SQL可以命中预编译语句缓存
+	public ArrayList<${name}> get${name}ByKeys(Collection<${key.boxedType}> keys) {
+		ArrayList<${name}> datas = new ArrayList<>();
+		if(keys == null || keys.isEmpty()) {
+			return datas;
+		}
+
+		ArrayList<String> args = new ArrayList<>(keys.size());
+		for (${key.boxedType} key : keys) {
+			if (key != null) {
+				args.add(${keysArg});
+			}
+		}
+
+		SQLiteDatabase db = helper.getReadableDatabase();
+		for (int offset = 0; offset < args.size(); offset += KEY_CHUNK_SIZE) {
+			int count = Math.min(KEY_CHUNK_SIZE, args.size() - offset);
+			int size = getKeyChunkSize(count);
+			String[] selectionArgs = new String[size];
+			for (int i = 0; i < size; i++) {
+				// 补齐的参数重复最后一个主键
+				selectionArgs[i] = args.get(offset + Math.min(i, count - 1));
+			}
+			Cursor cursor = null;
+			try {
+				cursor = db.query(${table}.TABLE_NAME,
+						COLUMNS,
+						genKeyInSelection(size),
+						selectionArgs,
+						null,
+						null,
+						null);
+				if (cursor != null && cursor.moveToFirst()) {
+					#include readRows
+				}
+			} finally {
+				if (cursor != null) cursor.close();
+			}
+		}
+		return datas;
+	}
+
+	public void delete${name}ByKeys(Collection<${key.boxedType}> keys) {
+		if(keys == null || keys.isEmpty()) {
+			return;
+		}
+
+		ArrayList<${key.boxedType}> keyList = new ArrayList<>(keys.size());
+		for (${key.boxedType} key : keys) {
+			if (key != null) {
+				keyList.add(key);
+			}
+		}
+
+		SQLiteDatabase db = helper.getWritableDatabase();
+		beginWrite(db);
+		try {
+			synchronized (statementLock) {
+				for (int offset = 0; offset < keyList.size(); offset += KEY_CHUNK_SIZE) {
+					int count = Math.min(KEY_CHUNK_SIZE, keyList.size() - offset);
+					int size = getKeyChunkSize(count);
+					SQLiteStatement stmt = getStatement(db, DELETE_BY_KEYS_SQL_PREFIX + genKeyInSelection(size));
+					for (int i = 0; i < size; i++) {
+						stmt.${key.bindMethod}(i + 1, ${keysBindValue});
+					}
+					stmt.executeUpdateDelete();
+					stmt.clearBindings();
+				}
+			}
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+#if cache
+		for (${key.boxedType} key : keyList) {
+			invalidateCache(key);
+		}
+#end
+	}
+
+	private static int getKeyChunkSize(int count) {
+		int size = 1;
+		while (size < count) {
+			size <<= 1;
+		}
+		return size;
+	}
+
+	private static String genKeyInSelection(int size) {
+		StringBuilder sql = new StringBuilder(${table}.${key.column} + " IN (");
+		for (int i = 0; i < size; i++) {
+			sql.append(i == 0 ? "?" : ", ?");
+		}
+		return sql.append(")").toString();
+	}
+
+#if cache
+	public int getCacheHitCount() {
+		return cacheHitCount.get();
+	}
+
+	public int getCacheMissCount() {
+		return cacheMissCount.get();
+	}
+
+	public void clearCache() {
+		synchronized (cacheLock) {
+			cacheVersion++;
+			cache.evictAll();
+		}
+	}
+
+	private void invalidateCache(${key.boxedType} key) {
+		synchronized (cacheLock) {
+			cacheVersion++;
+			if (key != null) {
+				cache.remove(key);
+			}
+		}
+	}
+
+#end
+#end
+## WAL模式下使用非独占事务，写入时其它线程的读操作继续使用连接池里的只读连接
+	private static void beginWrite(SQLiteDatabase db) {
+		if (db.isWriteAheadLoggingEnabled()) {
+			db.beginTransactionNonExclusive();
+		} else {
+			db.beginTransaction();
+		}
+	}
+
+	private static String genSelectSql(String columns, String where) {
+		String sql = "SELECT " + columns + " FROM " + ${table}.TABLE_NAME;
+		return where == null ? sql : sql + " WHERE " + where;
+	}
+
+## 读操作不使用statementLock：写操作先开始事务占用连接再取锁，读操作持锁后再取连接时，
+## 非WAL模式下只有一个连接，两者会互相等待。语句每次编译后关闭，连接内部按SQL缓存了已编译的语句
+	private long simpleQueryForLong(String sql, String[] selectionArgs) {
+		return DatabaseUtils.longForQuery(helper.getReadableDatabase(), sql, selectionArgs);
+	}
+
+#if aggregateFields
+## 聚合结果从游标按数值读取，不经过文本转换，列类型为REAL的整型字段也能读取；没有数据时为null
+	private Long queryForLong(String sql, String[] selectionArgs) {
+		Cursor cursor = helper.getReadableDatabase().rawQuery(sql, selectionArgs);
+		try {
+			return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : null;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	private Double queryForDouble(String sql, String[] selectionArgs) {
+		Cursor cursor = helper.getReadableDatabase().rawQuery(sql, selectionArgs);
+		try {
+			return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getDouble(0) : null;
+		} finally {
+			cursor.close();
+		}
+	}
+#end
+
+## 调用方需持有statementLock，数据库重新打开后之前编译的语句需要重新编译
+	private SQLiteStatement getStatement(SQLiteDatabase db, String sql) {
+		checkStatementDb(db);
+		SQLiteStatement stmt = statements.get(sql);
+		if (stmt == null) {
+			stmt = db.compileStatement(sql);
+			statements.put(sql, stmt);
+		}
+		return stmt;
+	}
+
+	private void checkStatementDb(SQLiteDatabase db) {
+		if (statementDb == db) {
+			return;
+		}
+		for (SQLiteStatement stmt : statements.values()) {
+			stmt.close();
+		}
+		statements.clear();
+		if (insertChunkStmt != null) {
+			insertChunkStmt.close();
+			insertChunkStmt = null;
+		}
+		if (insertTailStmt != null) {
+			insertTailStmt.close();
+			insertTailStmt = null;
+		}
+		statementDb = db;
+	}
+
+	public static final class Page {
+		public final ArrayList<${name}> datas;
+		public final ${pageKeyType} nextKey;
+		public final boolean hasMore;
+
+		Page(ArrayList<${name}> datas, ${pageKeyType} nextKey, boolean hasMore) {
+			this.datas = datas;
+			this.nextKey = nextKey;
+			this.hasMore = hasMore;
+		}
+	}
+
+	public interface RowCallback {
+		void onRow(${name} data);
+	}
+
+## 查询条件的值都作为参数绑定，相同结构的查询生成相同的SQL，复用连接中已编译的语句。不是线程安全的
+	public final class Query {
+		private final StringBuilder where = new StringBuilder();
+		private final StringBuilder orderBy = new StringBuilder();
+		private final ArrayList<String> args = new ArrayList<>();
+		private int limit = -1;
+
+		private Query() {
+		}
+
+		public Query where(String selection, String... selectionArgs) {
+			and("(" + selection + ")");
+			for (String arg : selectionArgs) {
+				args.add(arg);
+			}
+			return this;
+		}
+#each queryFields as field
+
+		public Query ${field.name}Eq(${field.declaredType} ${field.name}) {
+#if !field.primitive
+			if (${field.name} == null) {
+				return and(${table}.${field.column} + " IS NULL");
+			}
+#end
+			return and(${table}.${field.column} + "=?", ${field.selectionArg});
+		}
+
+		public Query ${field.name}NotEq(${field.declaredType} ${field.name}) {
+#if !field.primitive
+			if (${field.name} == null) {
+				return and(${table}.${field.column} + " IS NOT NULL");
+			}
+#end
+			return and(${table}.${field.column} + "!=?", ${field.selectionArg});
+		}
+#if field.comparable
+
+		public Query ${field.name}Gt(${field.declaredType} ${field.name}) {
+			return and(${table}.${field.column} + ">?", ${field.selectionArg});
+		}
+
+		public Query ${field.name}Ge(${field.declaredType} ${field.name}) {
+			return and(${table}.${field.column} + ">=?", ${field.selectionArg});
+		}
+
+		public Query ${field.name}Lt(${field.declaredType} ${field.name}) {
+			return and(${table}.${field.column} + "<?", ${field.selectionArg});
+		}
+
+		public Query ${field.name}Le(${field.declaredType} ${field.name}) {
+			return and(${table}.${field.column} + "<=?", ${field.selectionArg});
+		}
+#end
+
+		public Query orderBy${field.upperName}() {
+			return orderBy(${table}.${field.column} + " ASC");
+		}
+
+		public Query orderBy${field.upperName}Desc() {
+			return orderBy(${table}.${field.column} + " DESC");
+		}
+#end
+
+		public Query limit(int limit) {
+			this.limit = limit;
+			return this;
+		}
+
+		public ArrayList<${name}> list() {
+			return list(limit);
+		}
+
+		public ${name} first() {
+			ArrayList<${name}> datas = list(1);
+			return datas.isEmpty() ? null : datas.get(0);
+		}
+
+		public long count() {
+			return simpleQueryForLong(genSelectSql("COUNT(*)", getWhere()), args.toArray(new String[0]));
+		}
+
+		public void forEach(RowVisitor visitor) {
+			SQLiteDatabase db = helper.getReadableDatabase();
+			Cursor cursor = null;
+			try {
+				cursor = rawQuery(db, limit);
+				if (cursor != null && cursor.moveToFirst()) {
+					RowMapper mapper = new RowMapper(cursor);
+					${name} data = new ${name}();
+					do {
+						mapper.fill(cursor, data);
+					} while (visitor.visit(data) && cursor.moveToNext());
+				}
+			} finally {
+				if (cursor != null) cursor.close();
+			}
+		}
+
+		private ArrayList<${name}> list(int limit) {
+			SQLiteDatabase db = helper.getReadableDatabase();
+			ArrayList<${name}> datas = new ArrayList<>();
+			Cursor cursor = null;
+			try {
+				cursor = rawQuery(db, limit);
+				if (cursor != null && cursor.moveToFirst()) {
+					#include readRows
+				}
+			} finally {
+				if (cursor != null) cursor.close();
+			}
+			return datas;
+		}
+
+## LIMIT也作为参数绑定，不同的行数使用同一条SQL
+		private Cursor rawQuery(SQLiteDatabase db, int limit) {
+			StringBuilder sql = new StringBuilder(genSelectSql(SELECT_COLUMNS, getWhere()));
+			if (orderBy.length() > 0) {
+				sql.append(" ORDER BY ").append(orderBy);
+			}
+			ArrayList<String> queryArgs = new ArrayList<>(args);
+			if (limit >= 0) {
+				sql.append(" LIMIT ?");
+				queryArgs.add(String.valueOf(limit));
+			}
+			return db.rawQuery(sql.toString(), queryArgs.toArray(new String[0]));
+		}
+
+		private String getWhere() {
+			return where.length() == 0 ? null : where.toString();
+		}
+
+		private Query and(String condition) {
+			where.append(where.length() == 0 ? "" : " AND ").append(condition);
+			return this;
+		}
+
+		private Query and(String condition, String arg) {
+			args.add(arg);
+			return and(condition);
+		}
+
+		private Query orderBy(String order) {
+			orderBy.append(orderBy.length() == 0 ? "" : ", ").append(order);
+			return this;
+		}
+	}
+
+## 传入的对象在每行复用，需要保留时复制需要的值，返回false停止遍历
+	public interface RowVisitor {
+		boolean visit(${name} data);
+	}
+
+#each projections as projection
+	public static final class ${projection.name} {
+#each projection.fields as field
+		public ${field.declaredType} ${field.name};
+#end
+	}
+
+#end
+## 列索引在创建时解析一次，逐行读取时只做游标取值和对象构造
+	private static final class RowMapper {
+#each fields as field
+		private final int ${field.indexVar};
+#end
+
+		RowMapper(Cursor cursor) {
+#each fields as field
+			${field.indexVar} = cursor.getColumnIndex(${table}.${field.column});
+#end
+		}
+
+		${name} map(Cursor cursor) {
+			${name} data = new ${name}();
+			fill(cursor, data);
+			return data;
+		}
+
+		void fill(Cursor cursor, ${name} data) {
+#each fields as field
+			data.${field.setter}(${field.cursorValue});
+#end
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package ${package};
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+public class DatabaseHelper extends SQLiteOpenHelper {
+
+	// TODO: input your db file name
+	private static String DB_NAME = "INPUT YOUR DB FILE NAME";
+	private static final int DB_VERSION = 1;
+
+	private static volatile DatabaseHelper instance = null;
+	public static DatabaseHelper getInstance() {
+		if (instance == null) {
+			synchronized (DatabaseHelper.class) {
+				if (instance == null) {
+					instance = new DatabaseHelper();
+				}
+			}
+		}
+		return instance;
+	}
+
+	private DatabaseHelper() {
+		// TODO: user your application context
+		super(BaseApplication.getInstance(), DB_NAME, null, DB_VERSION);
+	}
+
+	@Override
+	public void onCreate(SQLiteDatabase db) {
+	}
+
+	@Override
+	public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+	}
+
+}
@@ -1,32 +1,153 @@
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.PlatformDataKeys;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiClass;
-import com.intellij.psi.PsiField;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import core.CodeFactory;
 import core.DatabaseGenerator;
+import core.template.TemplateSet;
+import entity.EntityInfo;
+import entity.GenerateInfo;
 import ui.ColumnDialog;
+import utils.AndroidModule;
 import utils.PluginUtils;
 
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import javax.swing.JOptionPane;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class DatabaseGenerateAction extends AnAction {
     @Override
     public void actionPerformed(AnActionEvent e) {
         Project project = e.getData(PlatformDataKeys.PROJECT);
-        PsiFile file = e.getData(PlatformDataKeys.PSI_FILE);
+        VirtualFile[] selectedFiles = e.getData(PlatformDataKeys.VIRTUAL_FILE_ARRAY);
+        if (selectedFiles == null || selectedFiles.length == 0) {
+            PsiFile file = e.getData(PlatformDataKeys.PSI_FILE);
+            if (file == null) {
+                return;
+            }
+            selectedFiles = new VirtualFile[]{file.getVirtualFile()};
+        }
 
-        PsiClass clazz = PluginUtils.getFileClass(file);
+        ArrayList<VirtualFile> javaFiles = new ArrayList<>();
+        for (VirtualFile file : selectedFiles) {
+            collectJavaFiles(file, javaFiles);
+        }
+        if (javaFiles.isEmpty()) {
+            return;
+        }
 
-        ColumnDialog dialog = new ColumnDialog(clazz);
-        dialog.setOnGenerateListener((fields, priKeyField) -> WriteCommandAction.runWriteCommandAction(project, () -> {
-            DatabaseGenerator.genCode(file, clazz, fields, priKeyField);
-        }));
-        dialog.pack();
-        dialog.setVisible(true);
+        if (javaFiles.size() == 1 && !selectedFiles[0].isDirectory()) {
+            // 单个数据类，弹出选择界面
+            PsiClass clazz = PluginUtils.getFileClass(PsiManager.getInstance(project).findFile(javaFiles.get(0)));
+            if (clazz == null) {
+                return;
+            }
+            EntityInfo entity = PluginUtils.getEntityInfo(clazz);
+
+            ColumnDialog dialog = new ColumnDialog(entity);
+            dialog.setOnGenerateListener(info -> generate(project, javaFiles, info));
+            dialog.pack();
+            dialog.setVisible(true);
+        } else {
+            // 包或者多选时不再逐个弹窗，全部字段使用默认_ID主键生成
+            generate(project, javaFiles, null);
+        }
+    }
+
+    private static void collectJavaFiles(VirtualFile file, ArrayList<VirtualFile> javaFiles) {
+        if (file.isDirectory()) {
+            for (VirtualFile child : file.getChildren()) {
+                collectJavaFiles(child, javaFiles);
+            }
+        } else if ("java".equals(file.getExtension())) {
+            javaFiles.add(file);
+        }
+    }
+
+    /**
+     * 在可取消的后台任务中读取PSI和生成代码字符串，完成后在一次写命令中统一修改文件。
+     * 数据类按所在模块分组，每个模块生成到自己的db包下
+     *
+     * @param info 单个数据类时选择界面的配置，为null时使用默认配置
+     */
+    private static void generate(Project project, ArrayList<VirtualFile> javaFiles, GenerateInfo info) {
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Generating database code", true) {
+
+            private final LinkedHashMap<AndroidModule, ModuleBatch> batches = new LinkedHashMap<>();
+            // 不支持的数据类跳过，不影响同一批中的其它数据类
+            private final ArrayList<String> errors = new ArrayList<>();
+
+            @Override
+            public void run(ProgressIndicator indicator) {
+                indicator.setIndeterminate(false);
+                TemplateSet templates = DatabaseGenerator.getTemplateSet(project);
+                for (int i = 0; i < javaFiles.size(); i++) {
+                    indicator.checkCanceled();
+                    VirtualFile file = javaFiles.get(i);
+                    indicator.setFraction((double) i / javaFiles.size());
+                    indicator.setText2(file.getName());
+
+                    AndroidModule module = ApplicationManager.getApplication().runReadAction(
+                            (Computable<AndroidModule>) () -> file.isValid() ? DatabaseGenerator.getTargetModule(project, file) : null);
+                    EntityInfo entity = ApplicationManager.getApplication().runReadAction((Computable<EntityInfo>) () -> {
+                        if (!file.isValid()) {
+                            return null;
+                        }
+                        PsiClass clazz = PluginUtils.getFileClass(PsiManager.getInstance(project).findFile(file));
+                        return clazz == null || clazz.isInterface() || clazz.isEnum() ? null : PluginUtils.getEntityInfo(clazz);
+                    });
+                    if (module == null || module.getPackageName() == null || entity == null || entity.getFields().isEmpty()) {
+                        continue;
+                    }
+                    GenerateInfo entityInfo = info != null ? info : GenerateInfo.ofAllFields(entity, null);
+                    String packageName = DatabaseGenerator.getDbPackageName(module);
+                    String daoCode;
+                    try {
+                        daoCode = CodeFactory.withFingerprint(CodeFactory.genDaoCode(entity, entityInfo, packageName, templates));
+                    } catch (IllegalArgumentException ex) {
+                        // 如字段类型无法解析、主键不能作为查询参数
+                        errors.add(entity.getName() + ": " + ex.getMessage());
+                        continue;
+                    }
+                    ModuleBatch batch = batches.computeIfAbsent(module, key -> new ModuleBatch());
+                    batch.entities.add(entity);
+                    batch.infos.add(entityInfo);
+                    batch.daoCodes.add(daoCode);
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                if (!errors.isEmpty()) {
+                    JOptionPane.showMessageDialog(null, "skipped unsupported beans:\n" + String.join("\n", errors));
+                }
+                if (batches.isEmpty()) {
+                    return;
+                }
+                WriteCommandAction.runWriteCommandAction(project, () -> {
+                    for (Map.Entry<AndroidModule, ModuleBatch> entry : batches.entrySet()) {
+                        ModuleBatch batch = entry.getValue();
+                        DatabaseGenerator.genCode(project, entry.getKey(), batch.entities, batch.infos, batch.daoCodes);
+                    }
+                });
+            }
+        });
+    }
+
+    private static class ModuleBatch {
+        final ArrayList<EntityInfo> entities = new ArrayList<>();
+        final ArrayList<GenerateInfo> infos = new ArrayList<>();
+        final ArrayList<String> daoCodes = new ArrayList<>();
     }
 }
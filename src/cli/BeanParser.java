@@ -0,0 +1,194 @@
+package cli;
+
+import entity.EntityInfo;
+import entity.FieldInfo;
+import utils.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 不依赖PSI的数据类源码解析，只识别顶层class的非static成员变量，
+ * 用于在IDE外批量生成代码
+ */
+public class BeanParser {
+
+    private static final Pattern PACKAGE_PATTERN = Pattern.compile("\\bpackage\\s+([\\w.]+)\\s*;");
+    private static final Pattern CLASS_PATTERN = Pattern.compile("\\bclass\\s+(\\w+)");
+    private static final Pattern TYPE_PATTERN = Pattern.compile("\\b(?:class|interface|enum)\\s+(\\w+)");
+    private static final Pattern ENUM_PATTERN = Pattern.compile("\\benum\\s+(\\w+)");
+    private static final Pattern IMPORT_PATTERN = Pattern.compile("\\bimport\\s+([\\w.]+\\.(\\w+))\\s*;");
+    private static final Pattern SIMPLE_TYPE_PATTERN = Pattern.compile("[A-Z]\\w*(\\.\\w+)*");
+    private static final Pattern ANNOTATION_PATTERN = Pattern.compile("@[\\w.]+(\\s*\\([^)]*\\))?");
+    private static final Pattern FIELD_PATTERN = Pattern.compile("^((?:\\w+\\s+)*?)([\\w.]+(?:\\s*<.*>)?(?:\\s*\\[\\s*])*)\\s+(\\w+(?:\\s*,\\s*\\w+)*)$");
+
+    /**
+     * 解析Java源码，不是class或者没有字段时返回null
+     */
+    public static EntityInfo parse(String source) {
+        return parse(source, Collections.emptyMap());
+    }
+
+    /**
+     * @param enums 源码目录中声明的枚举，见 {@link #findEnums(String)}，类型为枚举的字段按ordinal存储
+     */
+    public static EntityInfo parse(String source, Map<String, String> enums) {
+        String code = stripCommentsAndStrings(source);
+
+        Matcher classMatcher = CLASS_PATTERN.matcher(code);
+        if (!classMatcher.find()) {
+            return null;
+        }
+        Matcher packageMatcher = PACKAGE_PATTERN.matcher(code);
+        String packageName = packageMatcher.find() ? packageMatcher.group(1) : "";
+        HashMap<String, String> imports = new HashMap<>();
+        Matcher importMatcher = IMPORT_PATTERN.matcher(code);
+        while (importMatcher.find()) {
+            imports.put(importMatcher.group(2), importMatcher.group(1));
+        }
+
+        int bodyStart = code.indexOf('{', classMatcher.end());
+        if (bodyStart < 0) {
+            return null;
+        }
+
+        // 只取类体第一层的语句，方法体和内部类都在更深的层级
+        ArrayList<FieldInfo> fields = new ArrayList<>();
+        StringBuilder statement = new StringBuilder();
+        int depth = 1;
+        for (int i = bodyStart + 1; i < code.length() && depth > 0; i++) {
+            char c = code.charAt(i);
+            if (c == '{') {
+                depth++;
+                statement.setLength(0);
+            } else if (c == '}') {
+                depth--;
+                statement.setLength(0);
+            } else if (depth == 1 && c == ';') {
+                parseField(statement.toString(), packageName, imports, enums, fields);
+                statement.setLength(0);
+            } else if (depth == 1) {
+                statement.append(c);
+            }
+        }
+        if (fields.isEmpty()) {
+            return null;
+        }
+        return new EntityInfo(classMatcher.group(1), packageName, fields);
+    }
+
+    /**
+     * 源码中声明的枚举，返回字段中可能使用的类型文本到完整类名，内部枚举同时包含 Outer.Name 形式
+     *
+     * <pre>
+     * Status -> com.example.bean.User.Status
+     * User.Status -> com.example.bean.User.Status
+     * </pre>
+     */
+    public static Map<String, String> findEnums(String source) {
+        String code = stripCommentsAndStrings(source);
+        Matcher typeMatcher = TYPE_PATTERN.matcher(code);
+        if (!typeMatcher.find()) {
+            return Collections.emptyMap();
+        }
+        String topName = typeMatcher.group(1);
+        Matcher packageMatcher = PACKAGE_PATTERN.matcher(code);
+        String prefix = packageMatcher.find() ? packageMatcher.group(1) + "." : "";
+
+        HashMap<String, String> enums = new HashMap<>();
+        Matcher enumMatcher = ENUM_PATTERN.matcher(code);
+        while (enumMatcher.find()) {
+            String name = enumMatcher.group(1);
+            if (name.equals(topName)) {
+                enums.put(name, prefix + name);
+            } else {
+                enums.put(name, prefix + topName + "." + name);
+                enums.put(topName + "." + name, prefix + topName + "." + name);
+            }
+        }
+        return enums;
+    }
+
+    private static void parseField(String statement, String packageName, Map<String, String> imports,
+                                   Map<String, String> enums, ArrayList<FieldInfo> fields) {
+        String text = ANNOTATION_PATTERN.matcher(statement).replaceAll(" ");
+        int assignIndex = text.indexOf('=');
+        if (assignIndex >= 0) {
+            text = text.substring(0, assignIndex);
+        }
+        text = text.trim().replaceAll("\\s+", " ");
+        if (text.isEmpty() || text.contains("(")) {
+            // 抽象方法或者其它非字段声明
+            return;
+        }
+
+        Matcher matcher = FIELD_PATTERN.matcher(text);
+        if (!matcher.matches()) {
+            return;
+        }
+        String modifiers = " " + matcher.group(1);
+        if (modifiers.contains(" static ")) {
+            return;
+        }
+        String type = matcher.group(2).replaceAll("\\s+", "");
+        for (String name : matcher.group(3).split("\\s*,\\s*")) {
+            fields.add(new FieldInfo(name, type, null, enums.get(type), resolveType(type, packageName, imports)));
+        }
+    }
+
+    /**
+     * 按import和所在包推断引用类型的完整类名，没有导入的类型认为和数据类在同一个包中。
+     * 基础类型、java.lang中的类型和带泛型的类型返回null
+     *
+     * <pre>
+     * Address -> com.example.bean.Address
+     * User.Address (import com.example.model.User) -> com.example.model.User.Address
+     * </pre>
+     */
+    private static String resolveType(String type, String packageName, Map<String, String> imports) {
+        if (!SIMPLE_TYPE_PATTERN.matcher(type).matches() || StringUtils.isImplicitType(type)) {
+            return null;
+        }
+        int dot = type.indexOf('.');
+        String outer = dot < 0 ? type : type.substring(0, dot);
+        if (imports.containsKey(outer)) {
+            return imports.get(outer) + (dot < 0 ? "" : type.substring(dot));
+        }
+        return packageName.isEmpty() ? type : packageName + "." + type;
+    }
+
+    /**
+     * 去掉注释和字符串内容，避免其中的括号和分号影响解析
+     */
+    private static String stripCommentsAndStrings(String source) {
+        StringBuilder sb = new StringBuilder(source.length());
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '/' && i + 1 < source.length() && source.charAt(i + 1) == '/') {
+                while (i < source.length() && source.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '/' && i + 1 < source.length() && source.charAt(i + 1) == '*') {
+                int end = source.indexOf("*/", i + 2);
+                i = end < 0 ? source.length() : end + 2;
+                sb.append(' ');
+            } else if (c == '"' || c == '\'') {
+                i++;
+                while (i < source.length() && source.charAt(i) != c) {
+                    i += source.charAt(i) == '\\' ? 2 : 1;
+                }
+                i++;
+                sb.append(c).append(c);
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+}
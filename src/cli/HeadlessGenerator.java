@@ -0,0 +1,199 @@
+package cli;
+
+import core.CodeFactory;
+import core.template.TemplateSet;
+import entity.DatabaseOptions;
+import entity.EntityInfo;
+import entity.GenerateInfo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * 命令行批量生成，不需要启动IDE。解析数据类源码目录下的所有类，
+ * 在ForkJoinPool中并行生成Dao，DataContract和DatabaseHelper汇总后生成
+ *
+ * <pre>
+ * java -cp AndroidDatabaseGeneratorPlugin.jar cli.HeadlessGenerator \
+ *         -key id -cache 64 -threads 8 app/src/main/java/com/example/bean app/src/main/java/com/example/db com.example.db
+ * </pre>
+ *
+ * -templates 指定自定义模板目录，其中的dao.tpl等文件覆盖内置模板
+ */
+public class HeadlessGenerator {
+
+    private static final String USAGE = "usage: HeadlessGenerator [-key fieldName] [-cache size] [-conflict REPLACE|UPDATE] [-threads n] [-templates dir] <beanSourceDir> <outputDir> <dbPackage>";
+
+    public static void main(String[] args) throws Exception {
+        String keyName = null;
+        int cacheSize = 0;
+        String conflictStrategy = GenerateInfo.CONFLICT_REPLACE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path templateDir = null;
+        ArrayList<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-key") && i + 1 < args.length) {
+                keyName = args[++i];
+            } else if (args[i].equals("-cache") && i + 1 < args.length) {
+                cacheSize = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-conflict") && i + 1 < args.length) {
+                conflictStrategy = args[++i];
+            } else if (args[i].equals("-threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-templates") && i + 1 < args.length) {
+                templateDir = Paths.get(args[++i]);
+            } else {
+                paths.add(args[i]);
+            }
+        }
+        if (paths.size() != 3) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        Path beanDir = Paths.get(paths.get(0));
+        Path outputDir = Paths.get(paths.get(1));
+        String packageName = paths.get(2);
+        // 模板在生成前编译好，语法错误时直接退出
+        TemplateSet templates = TemplateSet.forDirectory(templateDir);
+        templates.get(TemplateSet.DAO);
+        Files.createDirectories(outputDir);
+
+        long start = System.currentTimeMillis();
+        List<Path> sources;
+        try (Stream<Path> walk = Files.walk(beanDir)) {
+            sources = walk.filter(path -> path.toString().endsWith(".java")).sorted().collect(Collectors.toList());
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<String> codes = submit(pool, () -> sources.parallelStream()
+                    .map(HeadlessGenerator::read)
+                    .collect(Collectors.toList()));
+            // 先找出所有枚举，字段类型是枚举时按ordinal存储
+            HashMap<String, String> enums = new HashMap<>();
+            for (String code : codes) {
+                BeanParser.findEnums(code).forEach(enums::putIfAbsent);
+            }
+            List<EntityInfo> entities = submit(pool, () -> codes.parallelStream()
+                    .map(code -> BeanParser.parse(code, enums))
+                    .filter(Objects::nonNull)
+                    .sorted(Comparator.comparing(EntityInfo::getName))
+                    .collect(Collectors.toList()));
+            String finalKeyName = keyName;
+            int finalCacheSize = cacheSize;
+            String finalConflictStrategy = conflictStrategy;
+            List<GenerateInfo> infos = entities.stream()
+                    .map(entity -> genInfo(entity, finalKeyName, finalCacheSize, finalConflictStrategy))
+                    .collect(Collectors.toList());
+
+            // 每个Dao互相独立，并行生成和写入
+            submit(pool, () -> {
+                IntStream.range(0, entities.size()).parallel().forEach(i -> {
+                    EntityInfo entity = entities.get(i);
+                    write(outputDir.resolve(entity.getName() + "Dao.java"),
+                            CodeFactory.genDaoCode(entity, infos.get(i), packageName, templates));
+                });
+                return null;
+            });
+
+            write(outputDir.resolve("DataContract.java"), CodeFactory.genDataContractCode(packageName, entities, infos, templates));
+            if (CodeFactory.usesBlobCodec(infos)) {
+                write(outputDir.resolve("BlobCodec.java"), CodeFactory.genBlobCodecCode(packageName, templates));
+            }
+            Path helperFile = outputDir.resolve("DatabaseHelper.java");
+            if (Files.exists(helperFile)) {
+                // 已有的DatabaseHelper可能包含手写的配置和迁移，不覆盖
+                System.err.println("skip existing " + helperFile + ", use the plugin action to update tables");
+            } else {
+                write(helperFile, genDatabaseHelper(entities, infos, packageName, templates));
+            }
+            System.out.println("generated " + entities.size() + " entities in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static <T> T submit(ForkJoinPool pool, Callable<T> task) throws Exception {
+        try {
+            return pool.submit(task).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private static String read(Path source) {
+        try {
+            return new String(Files.readAllBytes(source), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 命令行没有选择界面，使用全部字段，指定名称的字段存在时作为主键，否则使用默认_ID，
+     * 有主键时按cacheSize缓存，upsert按conflictStrategy处理主键冲突
+     */
+    private static GenerateInfo genInfo(EntityInfo entity, String keyName, int cacheSize, String conflictStrategy) {
+        GenerateInfo info = GenerateInfo.ofAllFields(entity, keyName == null ? null : entity.findField(keyName));
+        info.setCacheSize(cacheSize);
+        info.setConflictStrategy(conflictStrategy);
+        return info;
+    }
+
+    private static String genDatabaseHelper(List<EntityInfo> entities, List<GenerateInfo> infos, String packageName,
+                                            TemplateSet templates) {
+        String code = CodeFactory.genSqliteOpenHelperInitCode(packageName, templates);
+        StringBuilder calls = new StringBuilder();
+        StringBuilder methods = new StringBuilder();
+        String configureCode = CodeFactory.genConfigureCode(new DatabaseOptions());
+        if (configureCode != null) {
+            methods.append("\n").append(CodeFactory.indentCode(configureCode));
+        }
+        if (configureCode != null && configureCode.contains("android.database.DatabaseUtils.")) {
+            methods = new StringBuilder(methods.toString().replace("android.database.DatabaseUtils.", "DatabaseUtils."));
+            code = code.replace("import android.database.sqlite.SQLiteDatabase;",
+                    "import android.database.DatabaseUtils;\nimport android.database.sqlite.SQLiteDatabase;");
+        }
+        for (int i = 0; i < entities.size(); i++) {
+            EntityInfo entity = entities.get(i);
+            GenerateInfo info = infos.get(i);
+            calls.append("\t\tcreate").append(entity.getName()).append("Table(db);\n");
+            methods.append("\n").append(CodeFactory.indentCode(CodeFactory.genSchemaComment(CodeFactory.genTableSchema(entity, info))
+                    + CodeFactory.genCreateTableCode(entity, info.getFields(), info.getPriKeyFields())));
+        }
+        code = code.replace("public void onCreate(SQLiteDatabase db) {\n",
+                "public void onCreate(SQLiteDatabase db) {\n" + calls);
+        return code.substring(0, code.lastIndexOf('}')) + methods + "}\n";
+    }
+
+    private static void write(Path file, String code) {
+        byte[] bytes = code.getBytes(StandardCharsets.UTF_8);
+        try {
+            // 内容没有变化时不重写，保留文件时间戳，增量编译不会重新编译
+            if (Files.exists(file) && Arrays.equals(Files.readAllBytes(file), bytes)) {
+                return;
+            }
+            Files.write(file, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
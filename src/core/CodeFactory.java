@@ -1,16 +1,35 @@
 package core;
 
-import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.psi.PsiClass;
-import com.intellij.psi.PsiField;
-import com.intellij.psi.PsiType;
-import utils.AndroidUtils;
+import core.adapter.TypeAdapters;
+import core.template.TemplateModel;
+import core.template.TemplateSet;
+import entity.DatabaseOptions;
+import entity.EntityInfo;
+import entity.FieldInfo;
+import entity.GenerateInfo;
+import entity.IndexInfo;
+import entity.ProjectionInfo;
+import entity.TableSchema;
 import utils.StringUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class CodeFactory {
 
+    private static final String SCHEMA_TABLE_TAG = "@table";
+    private static final String SCHEMA_COLUMN_TAG = "@column";
+    private static final String SCHEMA_INDEX_TAG = "@index";
+    private static final String FINGERPRINT_TAG = "@fingerprint";
+    private static final Pattern FINGERPRINT_PATTERN = Pattern.compile(FINGERPRINT_TAG + "\\s+([0-9a-f]+)");
+
     /**
      * 生成DatabaseHelper初始代码
      *
@@ -52,74 +71,119 @@ public class CodeFactory {
      * }
      * </pre>
      */
-    public static String genSqliteOpenHelperInitCode(VirtualFile dir) {
-        return StringUtils.formatSingleLine(0, "package " + AndroidUtils.getFilePackageName(dir) + ";") +
-                "\n" +
-                StringUtils.formatSingleLine(0, "import android.database.sqlite.SQLiteDatabase;") +
-                StringUtils.formatSingleLine(0, "import android.database.sqlite.SQLiteOpenHelper;") +
-                "\n" +
-                StringUtils.formatSingleLine(0, "public class DatabaseHelper extends SQLiteOpenHelper {") +
-                "\n" +
-                StringUtils.formatSingleLine(1, "// TODO: input your db file name") +
-                StringUtils.formatSingleLine(1, "private static String DB_NAME = \"INPUT YOUR DB FILE NAME\";") +
-                StringUtils.formatSingleLine(1, "private static final int DB_VERSION = 1;") +
-                "\n" +
-                StringUtils.formatSingleLine(1, "private static volatile DatabaseHelper instance = null;") +
-                StringUtils.formatSingleLine(1, "public static DatabaseHelper getInstance() {") +
-                StringUtils.formatSingleLine(2, "if (instance == null) {") +
-                StringUtils.formatSingleLine(3, "synchronized (DatabaseHelper.class) {") +
-                StringUtils.formatSingleLine(4, "if (instance == null) {") +
-                StringUtils.formatSingleLine(5, "instance = new DatabaseHelper();") +
-                StringUtils.formatSingleLine(4, "}") +
-                StringUtils.formatSingleLine(3, "}") +
-                StringUtils.formatSingleLine(2, "}") +
-                StringUtils.formatSingleLine(2, "return instance;") +
-                StringUtils.formatSingleLine(1, "}") +
-                "\n" +
-                StringUtils.formatSingleLine(1, "private DatabaseHelper() {") +
-                StringUtils.formatSingleLine(2, "// TODO: user your application context") +
-                StringUtils.formatSingleLine(2, "super(BaseApplication.getInstance(), DB_NAME, null, DB_VERSION);") +
-                StringUtils.formatSingleLine(1, "}") +
-                "\n" +
-                StringUtils.formatSingleLine(1, "@Override") +
-                StringUtils.formatSingleLine(1, "public void onCreate(SQLiteDatabase db) {") +
-                StringUtils.formatSingleLine(1, "}") +
-                "\n" +
-                StringUtils.formatSingleLine(1, "@Override") +
-                StringUtils.formatSingleLine(1, "public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {") +
-                StringUtils.formatSingleLine(1, "}") +
-                "\n" +
-                "}";
+    public static String genSqliteOpenHelperInitCode(String packageName) {
+        return genSqliteOpenHelperInitCode(packageName, TemplateSet.getDefault());
+    }
+
+    public static String genSqliteOpenHelperInitCode(String packageName, TemplateSet templates) {
+        return templates.get(TemplateSet.HELPER).render(packageModel(packageName)).trim();
     }
 
     /**
-     * 生成创建数据库表单方法代码
+     * 生成数据库连接配置方法代码，每次打开数据库时调用，早于onCreate。
+     * page_size只在数据库文件创建前设置有效，synchronous只影响写入，只有主连接写入，设置在主连接上即可；
+     * cache_size、temp_store、mmap_size是连接级的设置，WAL模式下读取使用连接池中的其它连接，
+     * Android 11(API 30)起用execPerConnectionSQL对每个连接(包括之后新建的连接)执行，
+     * 之前的版本没有对应接口，只作用于主连接，其它只读连接使用SQLite默认值。所有选项都是默认值时返回null
+     *
+     * <pre>
+     * &#64;Override
+     * public void onConfigure(SQLiteDatabase db) {
+     *     super.onConfigure(db);
+     *     db.enableWriteAheadLogging();
+     *     db.execSQL("PRAGMA synchronous=NORMAL");
+     *     db.execSQL("PRAGMA page_size=4096");
+     *     if (android.os.Build.VERSION.SDK_INT >= 30) {
+     *         db.execPerConnectionSQL("PRAGMA cache_size=-8192", null);
+     *         db.execPerConnectionSQL("PRAGMA temp_store=MEMORY", null);
+     *         db.execPerConnectionSQL("PRAGMA mmap_size=268435456", null);
+     *     } else {
+     *         // Android 11以下只作用于主连接，WAL模式下的只读连接使用SQLite默认值
+     *         db.execSQL("PRAGMA cache_size=-8192");
+     *         db.execSQL("PRAGMA temp_store=MEMORY");
+     *         // mmap_size会返回设置后的值，不能使用execSQL
+     *         android.database.DatabaseUtils.longForQuery(db, "PRAGMA mmap_size=268435456", null);
+     *     }
+     * }
+     * </pre>
+     */
+    public static String genConfigureCode(DatabaseOptions options) {
+        StringBuilder pragmaSb = new StringBuilder();
+        if (options.isWalEnabled()) {
+            pragmaSb.append(StringUtils.formatSingleLine(1, "db.enableWriteAheadLogging();"));
+        }
+        if (!"DEFAULT".equals(options.getSynchronous())) {
+            pragmaSb.append(StringUtils.formatSingleLine(1, "db.execSQL(\"PRAGMA synchronous=" + options.getSynchronous() + "\");"));
+        }
+        if (options.getPageSize() != DatabaseOptions.DEFAULT) {
+            pragmaSb.append(StringUtils.formatSingleLine(1, "db.execSQL(\"PRAGMA page_size=" + options.getPageSize() + "\");"));
+        }
+
+        // 连接级的设置，新版本对每个连接执行，旧版本只能设置主连接
+        StringBuilder perConnectionSb = new StringBuilder();
+        StringBuilder primarySb = new StringBuilder();
+        if (options.getCacheSize() != DatabaseOptions.DEFAULT) {
+            String pragma = "PRAGMA cache_size=" + options.getCacheSize();
+            perConnectionSb.append(StringUtils.formatSingleLine(2, "db.execPerConnectionSQL(\"" + pragma + "\", null);"));
+            primarySb.append(StringUtils.formatSingleLine(2, "db.execSQL(\"" + pragma + "\");"));
+        }
+        if (!"DEFAULT".equals(options.getTempStore())) {
+            String pragma = "PRAGMA temp_store=" + options.getTempStore();
+            perConnectionSb.append(StringUtils.formatSingleLine(2, "db.execPerConnectionSQL(\"" + pragma + "\", null);"));
+            primarySb.append(StringUtils.formatSingleLine(2, "db.execSQL(\"" + pragma + "\");"));
+        }
+        if (options.getMmapSize() != DatabaseOptions.DEFAULT) {
+            String pragma = "PRAGMA mmap_size=" + options.getMmapSize();
+            perConnectionSb.append(StringUtils.formatSingleLine(2, "db.execPerConnectionSQL(\"" + pragma + "\", null);"));
+            primarySb.append(StringUtils.formatSingleLine(2, "// mmap_size会返回设置后的值，不能使用execSQL"));
+            primarySb.append(StringUtils.formatSingleLine(2, "android.database.DatabaseUtils.longForQuery(db, \"" + pragma + "\", null);"));
+        }
+        if (perConnectionSb.length() > 0) {
+            pragmaSb.append(StringUtils.formatSingleLine(1, "if (android.os.Build.VERSION.SDK_INT >= 30) {"))
+                    .append(perConnectionSb)
+                    .append(StringUtils.formatSingleLine(1, "} else {"))
+                    .append(StringUtils.formatSingleLine(2, "// Android 11以下只作用于主连接，WAL模式下的只读连接使用SQLite默认值"))
+                    .append(primarySb)
+                    .append(StringUtils.formatSingleLine(1, "}"));
+        }
+        if (pragmaSb.length() == 0) {
+            return null;
+        }
+
+        return StringUtils.formatSingleLine(0, "@Override") +
+                StringUtils.formatSingleLine(0, "public void onConfigure(SQLiteDatabase db) {") +
+                StringUtils.formatSingleLine(1, "super.onConfigure(db);") +
+                pragmaSb.toString() +
+                StringUtils.formatSingleLine(0, "}");
+    }
+
+    /**
+     * 生成创建数据库表单方法代码，表结构根据主键类型决定：
+     * 没有自定义主键时使用_ID自增主键；整型主键直接作为rowid别名(INTEGER PRIMARY KEY)；
+     * 其它类型主键不再需要rowid，使用WITHOUT ROWID表(需要SQLite 3.8.2，即Android 5.0以上)
      *
      * <pre>
      * String sql = "CREATE TABLE IF NOT EXISTS "
      *        DataContract.USER.TABLE_NAME + "("
-     *        DataContract.USER._ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
-     *        DataContract.USER.USERNAME + " TEXT,"
+     *        DataContract.USER.USERNAME + " TEXT PRIMARY KEY,"
      *        DataContract.USER.IS_MALE + " TEXT,"
      *        DataContract.USER.AGE + " TEXT"
-     *        + ")";
+     *        + ") WITHOUT ROWID";
      * </pre>
      */
-    public static String genCreateTableCode(PsiClass clazz, ArrayList<PsiField> fields, PsiField priKeyField) {
-        String tableName = "DataContract." + clazz.getName();
+    public static String genCreateTableCode(EntityInfo entity, ArrayList<FieldInfo> fields, FieldInfo priKeyField) {
+        String tableName = "DataContract." + entity.getName();
 
         StringBuilder sb = new StringBuilder();
-        sb.append(StringUtils.formatSingleLine(0, "public void create" + clazz.getName() + "Table(SQLiteDatabase db) {"));
+        sb.append(StringUtils.formatSingleLine(0, "public void create" + entity.getName() + "Table(SQLiteDatabase db) {"));
         sb.append(StringUtils.formatSingleLine(1, "String sql = \"CREATE TABLE IF NOT EXISTS \""));
         sb.append(StringUtils.formatSingleLine(3, "+ " + tableName + ".TABLE_NAME + \"(\""));
         if(priKeyField == null) {
             // 默认主键
             sb.append(StringUtils.formatSingleLine(3, "+ " + tableName + "._ID + \" INTEGER PRIMARY KEY AUTOINCREMENT,\""));
-        } else {
-            sb.append(StringUtils.formatSingleLine(3, "+ " + tableName + "._ID + \" INTEGER,\""));
         }
 
-        for (PsiField field : fields) {
+        for (FieldInfo field : fields) {
             String name = getColumnString(field);
             String type = parseDbType(field);
             if(priKeyField != null && priKeyField.getName().equals(field.getName())) {
@@ -129,354 +193,528 @@ public class CodeFactory {
                 sb.append(StringUtils.formatSingleLine(3, "+ " + tableName + "." + name + " + \" " + type + ",\""));
             }
         }
-        sb.replace(sb.lastIndexOf(",\""), sb.lastIndexOf(",\"") + 2, "\"\n\t\t+ \")\";");
+        // 非整型主键时rowid只是多余的一层B树，使用WITHOUT ROWID表直接按主键存储
+        String tableOption = isRowidKey(priKeyField) ? ")" : ") WITHOUT ROWID";
+        sb.replace(sb.lastIndexOf(",\""), sb.lastIndexOf(",\"") + 2, "\"\n\t\t+ \"" + tableOption + "\";");
         sb.append(StringUtils.formatSingleLine(1, "db.execSQL(sql);"));
         sb.append(StringUtils.formatSingleLine(0, "}"));
         return sb.toString();
     }
 
     /**
-     * 生成DataContract文件初始代码
+     * 生成创建二级索引方法代码
      *
      * <pre>
-     * package com.boredream.plugindemo.db;
-     *
-     * public final class DataContract {
-     *     private DataContract() {
-     *         // private
-     *     }
-     *}
+     * public void createUserIndexes(SQLiteDatabase db) {
+     *     db.execSQL("CREATE INDEX IF NOT EXISTS idx_user_username ON " + DataContract.User.TABLE_NAME
+     *             + "(" + DataContract.User.USERNAME + ")");
+     * }
      * </pre>
      */
-    public static String genDataContractInitCode(VirtualFile dir) {
-        return StringUtils.formatSingleLine(0, "package " + AndroidUtils.getFilePackageName(dir) + ";") +
-                "\n" +
-                StringUtils.formatSingleLine(0, "import android.provider.BaseColumns;") +
-                "\n" +
-                StringUtils.formatSingleLine(0, "public final class DataContract {") +
-                "\n" +
-                StringUtils.formatSingleLine(1, "private DataContract() {") +
-                StringUtils.formatSingleLine(2, "// private") +
-                StringUtils.formatSingleLine(1, "}") +
-                "\n" +
-                "}";
+    public static String genCreateIndexCode(EntityInfo entity, ArrayList<IndexInfo> indexes) {
+        String tableName = "DataContract." + entity.getName();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(StringUtils.formatSingleLine(0, "public void create" + entity.getName() + "Indexes(SQLiteDatabase db) {"));
+        for (IndexInfo index : indexes) {
+            StringBuilder columnsSb = new StringBuilder();
+            for (int i = 0; i < index.getFields().size(); i++) {
+                columnsSb.append(i == 0 ? "" : " + \", \" + ").append(tableName).append(".")
+                        .append(getColumnString(index.getFields().get(i)));
+            }
+            String type = index.isUnique() ? "UNIQUE INDEX" : "INDEX";
+            sb.append(StringUtils.formatSingleLine(1, "db.execSQL(\"CREATE " + type + " IF NOT EXISTS "
+                    + getIndexNameString(entity, index) + " ON \" + " + tableName + ".TABLE_NAME"));
+            sb.append(StringUtils.formatSingleLine(3, "+ \"(\" + " + columnsSb.toString() + " + \")\");"));
+        }
+        sb.append(StringUtils.formatSingleLine(0, "}"));
+        return sb.toString();
+    }
+
+    /**
+     * 生成当前选择字段对应的表结构记录，表名列名都使用实际的字符串，不依赖DataContract常量
+     */
+    public static TableSchema genTableSchema(EntityInfo entity, GenerateInfo info) {
+        FieldInfo priKeyField = info.getPriKeyFields();
+        TableSchema schema = new TableSchema();
+        schema.setTableName(StringUtils.camel2underline(entity.getName()));
+        if (priKeyField == null) {
+            // 默认主键，即BaseColumns._ID
+            schema.getColumns().put("_id", "INTEGER PRIMARY KEY AUTOINCREMENT");
+        }
+        for (FieldInfo field : info.getFields()) {
+            String definition = parseDbType(field);
+            if (priKeyField != null && priKeyField.getName().equals(field.getName())) {
+                definition += " PRIMARY KEY";
+            }
+            schema.getColumns().put(getColumnString(field).toLowerCase(), definition);
+        }
+        schema.setTableOption(isRowidKey(priKeyField) ? "" : "WITHOUT ROWID");
+        for (IndexInfo index : info.getIndexes()) {
+            StringBuilder columnsSb = new StringBuilder();
+            for (int i = 0; i < index.getFields().size(); i++) {
+                columnsSb.append(i == 0 ? "" : ", ").append(getColumnString(index.getFields().get(i)).toLowerCase());
+            }
+            String name = getIndexNameString(entity, index);
+            String type = index.isUnique() ? "UNIQUE INDEX" : "INDEX";
+            schema.getIndexes().put(name, "CREATE " + type + " IF NOT EXISTS " + name
+                    + " ON " + schema.getTableName() + "(" + columnsSb.toString() + ")");
+        }
+        return schema;
     }
 
     /**
-     * 生成数据类字段Class内容代码
+     * 生成表结构记录注释，添加在create table方法上，再次生成时解析出来和新的表结构对比
      *
      * <pre>
-     * String TABLE_NAME = "User";
-     * String USERNAME = "username";
-     * String IS_MALE = "is_male";
-     * String AGE = "age";
+     * &#47;**
+     *  * 表结构记录，用于再次生成时生成升级代码，请勿修改
+     *  * &#64;table User WITHOUT ROWID
+     *  * &#64;column name TEXT PRIMARY KEY
+     *  * &#64;column age INTEGER
+     *  * &#64;index idx_user_age CREATE INDEX IF NOT EXISTS idx_user_age ON User(age)
+     *  *&#47;
      * </pre>
      */
-    public static String genBeanColumnsCode(PsiClass clazz, ArrayList<PsiField> fields) {
+    public static String genSchemaComment(TableSchema schema) {
         StringBuilder sb = new StringBuilder();
-        sb.append(StringUtils.formatSingleLine(0, "public interface " + clazz.getName() + " extends BaseColumns {"));
-        sb.append(StringUtils.formatSingleLine(1, "String TABLE_NAME = \"" + StringUtils.camel2underline(clazz.getName()) + "\";"));
-        for (PsiField field : fields) {
-            String name = StringUtils.camel2underline(field.getName()).toUpperCase();
-            String value = name.toLowerCase();
-            sb.append(StringUtils.formatSingleLine(1, "String " + name + " = \"" + value + "\";"));
+        sb.append(StringUtils.formatSingleLine(0, "/**"));
+        sb.append(StringUtils.formatSingleLine(0, " * 表结构记录，用于再次生成时生成升级代码，请勿修改"));
+        sb.append(StringUtils.formatSingleLine(0, " * " + SCHEMA_TABLE_TAG + " " + (schema.getTableName() + " " + schema.getTableOption()).trim()));
+        for (Map.Entry<String, String> column : schema.getColumns().entrySet()) {
+            sb.append(StringUtils.formatSingleLine(0, " * " + SCHEMA_COLUMN_TAG + " " + column.getKey() + " " + column.getValue()));
+        }
+        for (Map.Entry<String, String> index : schema.getIndexes().entrySet()) {
+            sb.append(StringUtils.formatSingleLine(0, " * " + SCHEMA_INDEX_TAG + " " + index.getKey() + " " + index.getValue()));
         }
-        sb.append("}");
-        return sb.toString().trim();
+        sb.append(StringUtils.formatSingleLine(0, " */"));
+        return sb.toString();
     }
 
     /**
-     * 生成Dao类，包含增删改查基础方法
+     * 解析表结构记录注释，没有记录时(如旧版本插件生成的代码)返回null
      */
-    public static String genDaoCode(PsiClass clazz, ArrayList<PsiField> fields, PsiField priKeyField, VirtualFile dir) {
-        String daoClassName = clazz.getName() + "Dao";
+    public static TableSchema parseSchemaComment(String comment) {
+        if (comment == null) {
+            return null;
+        }
+
+        TableSchema schema = null;
+        for (String line : comment.split("\n")) {
+            line = line.trim();
+            if (line.startsWith("*") && !line.startsWith("*/")) {
+                line = line.substring(1).trim();
+            }
+            String[] parts = line.split("\\s+", 3);
+            if (parts[0].equals(SCHEMA_TABLE_TAG) && parts.length >= 2) {
+                schema = new TableSchema();
+                schema.setTableName(parts[1]);
+                schema.setTableOption(parts.length == 3 ? parts[2] : "");
+            } else if (schema != null && parts.length == 3 && parts[0].equals(SCHEMA_COLUMN_TAG)) {
+                schema.getColumns().put(parts[1], parts[2]);
+            } else if (schema != null && parts.length == 3 && parts[0].equals(SCHEMA_INDEX_TAG)) {
+                schema.getIndexes().put(parts[1], parts[2]);
+            }
+        }
+        return schema;
+    }
+
+    /**
+     * 对比新旧表结构生成升级迁移方法代码，没有变化时返回null。
+     * 新增列使用ALTER TABLE ADD COLUMN，索引变化单独删除和创建；
+     * 删除列、修改列类型、主键或表选项时SQLite无法直接ALTER(DROP COLUMN需要SQLite 3.35)，
+     * 这时新建表复制数据后替换旧表。主键换成了已有的列(或修改了主键列定义)时，
+     * 旧数据中主键为NULL、重复或不能转为整型主键的行会中断升级，这些行用INSERT OR IGNORE跳过，升级后丢失。
+     * oldSchema为null时是已有数据库中新增的表，创建表和全部索引。
+     * 迁移中的SQL都使用实际字符串，之后字段变化也不会影响已有的迁移
+     *
+     * <pre>
+     * private void migrateUserTo2(SQLiteDatabase db) {
+     *     db.execSQL("ALTER TABLE User ADD COLUMN age INTEGER");
+     *     db.execSQL("DROP INDEX IF EXISTS idx_user_name");
+     *     db.execSQL("CREATE INDEX IF NOT EXISTS idx_user_age ON User(age)");
+     * }
+     *
+     * private void migrateNoteTo3(SQLiteDatabase db) {
+     *     db.execSQL("CREATE TABLE IF NOT EXISTS Note(_id INTEGER PRIMARY KEY AUTOINCREMENT, title TEXT)");
+     *     db.execSQL("CREATE INDEX IF NOT EXISTS idx_note_title ON Note(title)");
+     * }
+     * </pre>
+     */
+    public static String genMigrationCode(EntityInfo entity, TableSchema oldSchema, TableSchema newSchema, int version) {
+        if (oldSchema == null) {
+            return genCreateMigrationCode(entity, newSchema, version);
+        }
+        String tableName = newSchema.getTableName();
+        boolean rebuild = !oldSchema.getTableName().equals(tableName)
+                || !oldSchema.getTableOption().equals(newSchema.getTableOption());
+        ArrayList<String> addColumns = new ArrayList<>();
+        for (Map.Entry<String, String> column : oldSchema.getColumns().entrySet()) {
+            if (!column.getValue().equals(newSchema.getColumns().get(column.getKey()))) {
+                // 删除列或修改了列定义
+                rebuild = true;
+            }
+        }
+        for (Map.Entry<String, String> column : newSchema.getColumns().entrySet()) {
+            if (!oldSchema.getColumns().containsKey(column.getKey())) {
+                if (column.getValue().contains("PRIMARY KEY")) {
+                    // ADD COLUMN不能添加主键
+                    rebuild = true;
+                }
+                addColumns.add(column.getKey() + " " + column.getValue());
+            }
+        }
+
+        ArrayList<String> sqls = new ArrayList<>();
+        boolean keyChanged = false;
+        if (rebuild) {
+            // 重建表，旧表的索引随旧表一起删除，之后创建全部新索引
+            ArrayList<String> copyColumns = new ArrayList<>();
+            for (String column : newSchema.getColumns().keySet()) {
+                if (oldSchema.getColumns().containsKey(column)) {
+                    copyColumns.add(column);
+                }
+            }
+            String copyColumnsText = String.join(", ", copyColumns);
+            sqls.add("CREATE TABLE " + tableName + "_new(" + genSchemaColumnsSql(newSchema) + ")"
+                    + (newSchema.getTableOption().isEmpty() ? "" : " " + newSchema.getTableOption()));
+            String keyColumn = getPrimaryKeyColumn(newSchema);
+            if (keyColumn != null && copyColumns.contains(keyColumn)
+                    && !newSchema.getColumns().get(keyColumn).equals(oldSchema.getColumns().get(keyColumn))) {
+                // 旧数据不保证满足新主键的约束，不满足的行跳过
+                keyChanged = true;
+                String where = keyColumn + " IS NOT NULL";
+                if (newSchema.getColumns().get(keyColumn).startsWith("INTEGER")) {
+                    // 整型主键是rowid别名，非整数值会报datatype mismatch，不属于INSERT OR IGNORE忽略的约束冲突
+                    where += " AND CAST(" + keyColumn + " AS INTEGER) = " + keyColumn;
+                }
+                sqls.add("INSERT OR IGNORE INTO " + tableName + "_new(" + copyColumnsText + ") SELECT "
+                        + copyColumnsText + " FROM " + oldSchema.getTableName() + " WHERE " + where);
+            } else if (!copyColumns.isEmpty()) {
+                sqls.add("INSERT INTO " + tableName + "_new(" + copyColumnsText + ") SELECT "
+                        + copyColumnsText + " FROM " + oldSchema.getTableName());
+            }
+            sqls.add("DROP TABLE " + oldSchema.getTableName());
+            sqls.add("ALTER TABLE " + tableName + "_new RENAME TO " + tableName);
+            sqls.addAll(newSchema.getIndexes().values());
+        } else {
+            for (String column : addColumns) {
+                sqls.add("ALTER TABLE " + tableName + " ADD COLUMN " + column);
+            }
+            for (Map.Entry<String, String> index : oldSchema.getIndexes().entrySet()) {
+                if (!index.getValue().equals(newSchema.getIndexes().get(index.getKey()))) {
+                    sqls.add("DROP INDEX IF EXISTS " + index.getKey());
+                }
+            }
+            for (Map.Entry<String, String> index : newSchema.getIndexes().entrySet()) {
+                if (!index.getValue().equals(oldSchema.getIndexes().get(index.getKey()))) {
+                    sqls.add(index.getValue());
+                }
+            }
+        }
+        if (sqls.isEmpty()) {
+            return null;
+        }
 
         StringBuilder sb = new StringBuilder();
-        sb.append(StringUtils.formatSingleLine(0, "package " + AndroidUtils.getFilePackageName(dir) + ";"));
-        sb.append("\n");
-        sb.append(StringUtils.formatSingleLine(0, "import android.content.ContentValues;"));
-        sb.append(StringUtils.formatSingleLine(0, "import android.database.Cursor;"));
-        sb.append(StringUtils.formatSingleLine(0, "import android.database.sqlite.SQLiteDatabase;"));
-        sb.append(StringUtils.formatSingleLine(0, "import android.database.sqlite.SQLiteStatement;"));
-        String dataPackageText = AndroidUtils.getFilePackageName(clazz.getContainingFile().getVirtualFile()) + "." + clazz.getName();
-        sb.append(StringUtils.formatSingleLine(0, "import " + dataPackageText + ";"));
-        sb.append("\n");
-        sb.append(StringUtils.formatSingleLine(0, "import java.util.ArrayList;"));
-        sb.append("\n");
-        sb.append(StringUtils.formatSingleLine(0, "public class " + daoClassName + " {"));
-        sb.append(StringUtils.formatSingleLine(1, "private DatabaseHelper helper;"));
-        sb.append(StringUtils.formatSingleLine(1, "private static volatile " + daoClassName + " instance = null;"));
-        sb.append("\n");
-        sb.append(StringUtils.formatSingleLine(1, "public static " + daoClassName + " getInstance() {"));
-        sb.append(StringUtils.formatSingleLine(2, "if (instance == null) {"));
-        sb.append(StringUtils.formatSingleLine(3, "synchronized (" + daoClassName + ".class) {"));
-        sb.append(StringUtils.formatSingleLine(4, "if (instance == null) {"));
-        sb.append(StringUtils.formatSingleLine(5, "instance = new " + daoClassName + "();"));
-        sb.append(StringUtils.formatSingleLine(4, "}"));
-        sb.append(StringUtils.formatSingleLine(3, "}"));
-        sb.append(StringUtils.formatSingleLine(2, "}"));
-        sb.append(StringUtils.formatSingleLine(2, "return instance;"));
-        sb.append(StringUtils.formatSingleLine(1, "}"));
-        sb.append("\n");
-        sb.append(StringUtils.formatSingleLine(1, "private " + daoClassName + "() {"));
-        sb.append(StringUtils.formatSingleLine(2, "helper = DatabaseHelper.getInstance();"));
-        sb.append(StringUtils.formatSingleLine(1, "}"));
-        sb.append("\n");
-        genDaoAddMethod(clazz, fields, sb); // add data
-        sb.append("\n");
-        genDaoAddListMethod(clazz, fields, sb); // add data list
-        sb.append("\n");
-        genDaoGetListMethod(clazz, fields, sb); // get data list
-        sb.append("\n");
-        genDaoDeleteListMethod(clazz, sb); // delete data list
-        sb.append("\n");
-        // 以上是基本方法，如果包含主键，则新建用主键"修改"、"获取"、"删除"几个方法
-        if(priKeyField != null) {
-            genUpdateMethod(clazz, fields, priKeyField, sb); // update data
-            sb.append("\n");
-            genDaoGetListByKeyMethod(clazz, fields, priKeyField, sb); // get data list by key
-            sb.append("\n");
-            genDaoDeleteByKeyMethod(clazz, priKeyField, sb); // delete data by key
+        sb.append(StringUtils.formatSingleLine(0, "private void " + getMigrationMethodName(entity, version) + "(SQLiteDatabase db) {"));
+        if (rebuild) {
+            sb.append(StringUtils.formatSingleLine(1, "// 删除列或修改列定义、主键时无法直接ALTER，新建表复制数据后替换旧表"));
+        }
+        if (keyChanged) {
+            sb.append(StringUtils.formatSingleLine(1, "// 新主键为NULL、重复或类型不符的旧数据不会复制，升级后丢失"));
+        }
+        for (String sql : sqls) {
+            sb.append(StringUtils.formatSingleLine(1, "db.execSQL(\"" + sql + "\");"));
         }
         sb.append(StringUtils.formatSingleLine(0, "}"));
+        return sb.toString();
+    }
 
+    private static String genCreateMigrationCode(EntityInfo entity, TableSchema schema, int version) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(StringUtils.formatSingleLine(0, "private void " + getMigrationMethodName(entity, version) + "(SQLiteDatabase db) {"));
+        sb.append(StringUtils.formatSingleLine(1, "db.execSQL(\"CREATE TABLE IF NOT EXISTS " + schema.getTableName() + "("
+                + genSchemaColumnsSql(schema) + ")" + (schema.getTableOption().isEmpty() ? "" : " " + schema.getTableOption()) + "\");"));
+        for (String sql : schema.getIndexes().values()) {
+            sb.append(StringUtils.formatSingleLine(1, "db.execSQL(\"" + sql + "\");"));
+        }
+        sb.append(StringUtils.formatSingleLine(0, "}"));
         return sb.toString();
     }
 
-    private static void genDaoAddMethod(PsiClass clazz, ArrayList<PsiField> fields, StringBuilder sb) {
-        sb.append(StringUtils.formatSingleLine(1, "public void add" + clazz.getName() + "(" + clazz.getName() + " data) {"));
-        sb.append(StringUtils.formatSingleLine(2, "SQLiteDatabase db = helper.getWritableDatabase();"));
-        sb.append("\n");
-        sb.append(StringUtils.formatSingleLine(2, "ContentValues value = new ContentValues();"));
-        for (PsiField field : fields) {
-            String text = String.format("value.put(DataContract.%s.%s, %s);",
-                    clazz.getName(), getColumnString(field), genDataGetStr(field));
-            sb.append(StringUtils.formatSingleLine(2, text));
+    public static String getMigrationMethodName(EntityInfo entity, int version) {
+        return "migrate" + entity.getName() + "To" + version;
+    }
+
+    private static String getPrimaryKeyColumn(TableSchema schema) {
+        for (Map.Entry<String, String> column : schema.getColumns().entrySet()) {
+            if (column.getValue().contains("PRIMARY KEY")) {
+                return column.getKey();
+            }
         }
-        sb.append("\n");
-        sb.append(StringUtils.formatSingleLine(2, "db.insert(DataContract." + clazz.getName() + ".TABLE_NAME, null, value);"));
-        sb.append(StringUtils.formatSingleLine(1, "}"));
+        return null;
     }
 
-    private static void genDaoAddListMethod(PsiClass clazz, ArrayList<PsiField> fields, StringBuilder sb) {
-        sb.append(StringUtils.formatSingleLine(1, "public void add" + clazz.getName() + "List(ArrayList<" + clazz.getName() + "> datas) {"));
-        sb.append(StringUtils.formatSingleLine(2, "SQLiteDatabase db = helper.getWritableDatabase();"));
-        sb.append(StringUtils.formatSingleLine(2, "db.beginTransaction();"));
-        sb.append("\n");
-        StringBuilder valuesSb = new StringBuilder();
-        for (int i = 0; i < clazz.getFields().length; i++) {
-            valuesSb.append(i==0?"":", ").append("?");
+    private static String genSchemaColumnsSql(TableSchema schema) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> column : schema.getColumns().entrySet()) {
+            sb.append(sb.length() == 0 ? "" : ", ").append(column.getKey()).append(" ").append(column.getValue());
         }
-        sb.append(StringUtils.formatSingleLine(2, "String sql = \"INSERT INTO \" + DataContract." + clazz.getName() + ".TABLE_NAME + \" VALUES ( " + valuesSb.toString() + ")\";"));
-        sb.append(StringUtils.formatSingleLine(2, "SQLiteStatement stmt = db.compileStatement(sql);"));
-        sb.append("\n");
-        sb.append(StringUtils.formatSingleLine(2, "// 事务批处理"));
-        sb.append(StringUtils.formatSingleLine(2, "for (" + clazz.getName() + " data : datas) {"));
-        for (int i = 0; i < fields.size(); i++) {
-            PsiField field = fields.get(i);
-            String bindMethod = "bindString";
-            switch (parseDbType(field)) {
-                case "INTEGER":
-                    bindMethod = "bindLong";
-                    break;
-                case "REAL":
-                    bindMethod = "bindDouble";
-                    break;
+        return sb.toString();
+    }
+
+    /**
+     * 在生成的代码中添加指纹，指纹是去掉空白后代码内容的hash。
+     * 已有文档注释时加在注释最后，没有时在第一个public声明前添加注释
+     *
+     * <pre>
+     * &#47;**
+     *  * &#64;fingerprint 3f2a9c0d1e4b5a67
+     *  *&#47;
+     * public class UserDao {
+     * </pre>
+     */
+    public static String withFingerprint(String code) {
+        String tagLine = " * " + FINGERPRINT_TAG + " " + computeFingerprint(code);
+        int docStart = code.indexOf("/**");
+        if (docStart >= 0) {
+            int docEnd = code.indexOf("*/", docStart);
+            int lineStart = code.lastIndexOf('\n', docEnd) + 1;
+            return code.substring(0, lineStart) + StringUtils.formatSingleLine(0, tagLine) + code.substring(lineStart);
+        }
+        int declareStart = code.startsWith("public ") ? 0 : code.indexOf("\npublic ") + 1;
+        return code.substring(0, declareStart)
+                + StringUtils.formatSingleLine(0, "/**")
+                + StringUtils.formatSingleLine(0, tagLine)
+                + StringUtils.formatSingleLine(0, " */")
+                + code.substring(declareStart);
+    }
+
+    /**
+     * 读取代码中记录的指纹，没有时返回null
+     */
+    public static String getFingerprint(String code) {
+        Matcher matcher = FINGERPRINT_PATTERN.matcher(code);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * 计算代码内容的指纹，忽略空白和指纹注释本身，格式化代码不会改变指纹
+     */
+    public static String computeFingerprint(String code) {
+        String content = code.replaceAll("\\s+", "")
+                .replaceAll("\\*" + FINGERPRINT_TAG + "[0-9a-f]+", "")
+                .replace("/***/", "");
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                sb.append(String.format("%02x", digest[i]));
             }
-            sb.append(StringUtils.formatSingleLine(3, "stmt." + bindMethod + "(" + (i + 1) + ", " + genDataGetStr(field) + ");"));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
-        sb.append(StringUtils.formatSingleLine(3, "stmt.execute();"));
-        sb.append(StringUtils.formatSingleLine(3, "stmt.clearBindings();"));
-        sb.append(StringUtils.formatSingleLine(2, "}"));
-        sb.append("\n");
-        sb.append(StringUtils.formatSingleLine(2, "db.setTransactionSuccessful();"));
-        sb.append(StringUtils.formatSingleLine(2, "db.endTransaction();"));
-        sb.append(StringUtils.formatSingleLine(1, "}"));
     }
 
-    private static void genDaoGetListMethod(PsiClass clazz, ArrayList<PsiField> fields, StringBuilder sb) {
-        sb.append(StringUtils.formatSingleLine(1, "public ArrayList<" + clazz.getName() + "> get" + clazz.getName() + "List() {"));
-        sb.append(StringUtils.formatSingleLine(2, "SQLiteDatabase db = helper.getReadableDatabase();"));
-        sb.append(StringUtils.formatSingleLine(2, "ArrayList<" + clazz.getName() + "> datas = new ArrayList<>();"));
-        sb.append(StringUtils.formatSingleLine(2, "Cursor cursor = null;"));
-        sb.append(StringUtils.formatSingleLine(2, "try {"));
-        sb.append(StringUtils.formatSingleLine(3, "cursor = db.query(DataContract." + clazz.getName() + ".TABLE_NAME,"));
-        sb.append(StringUtils.formatSingleLine(5, "null,"));
-        sb.append(StringUtils.formatSingleLine(5, "null,"));
-        sb.append(StringUtils.formatSingleLine(5, "null,"));
-        sb.append(StringUtils.formatSingleLine(5, "null,"));
-        sb.append(StringUtils.formatSingleLine(5, "null,"));
-        sb.append(StringUtils.formatSingleLine(5, "null);"));
-        sb.append(StringUtils.formatSingleLine(3, "if (cursor != null && cursor.moveToFirst()) {"));
-        sb.append(StringUtils.formatSingleLine(4, "do {"));
-        sb.append(StringUtils.formatSingleLine(5, "" + clazz.getName() + " data = new " + clazz.getName() + "();"));
-        for (PsiField field : fields) {
-            sb.append(StringUtils.formatSingleLine(5, genSetDataStr(clazz, field)));
-        }
-        sb.append(StringUtils.formatSingleLine(5, "datas.add(data);"));
-        sb.append(StringUtils.formatSingleLine(4, "} while (cursor.moveToNext());"));
-        sb.append(StringUtils.formatSingleLine(3, "}"));
-        sb.append(StringUtils.formatSingleLine(2, "} finally {"));
-        sb.append(StringUtils.formatSingleLine(3, "if (cursor != null) cursor.close();"));
-        sb.append(StringUtils.formatSingleLine(2, "}"));
-        sb.append(StringUtils.formatSingleLine(2, "return datas;"));
-        sb.append(StringUtils.formatSingleLine(1, "}"));
+    /**
+     * 生成DataContract文件初始代码
+     *
+     * <pre>
+     * package com.boredream.plugindemo.db;
+     *
+     * public final class DataContract {
+     *     private DataContract() {
+     *         // private
+     *     }
+     *}
+     * </pre>
+     */
+    public static String genDataContractInitCode(String packageName) {
+        return genDataContractInitCode(packageName, TemplateSet.getDefault());
     }
 
-    private static void genDaoDeleteListMethod(PsiClass clazz, StringBuilder sb) {
-        sb.append(StringUtils.formatSingleLine(1, "public void delete" + clazz.getName() + "List() {"));
-        sb.append(StringUtils.formatSingleLine(2, "SQLiteDatabase db = helper.getWritableDatabase();"));
-        sb.append(StringUtils.formatSingleLine(2, "db.delete(DataContract." + clazz.getName() + ".TABLE_NAME, null, null);"));
-        sb.append(StringUtils.formatSingleLine(1, "}"));
+    public static String genDataContractInitCode(String packageName, TemplateSet templates) {
+        return templates.get(TemplateSet.CONTRACT).render(packageModel(packageName)).trim();
     }
 
-    private static void genUpdateMethod(PsiClass clazz, ArrayList<PsiField> fields, PsiField priKeyField, StringBuilder sb) {
-        sb.append(StringUtils.formatSingleLine(1, "public void update" + clazz.getName() + "(" + clazz.getName() + " data) {"));
-        sb.append(StringUtils.formatSingleLine(2, "SQLiteDatabase db = helper.getWritableDatabase();"));
-        sb.append("\n");
-        sb.append(StringUtils.formatSingleLine(2, "ContentValues value = new ContentValues();"));
-        for (PsiField field : fields) {
-            String text = String.format("value.put(DataContract.%s.%s, %s);",
-                    clazz.getName(), getColumnString(field), genDataGetStr(field));
-            sb.append(StringUtils.formatSingleLine(2, text));
+    /**
+     * 生成BlobCodec类代码，集合字段的编解码，和Dao在同一个包下
+     */
+    public static String genBlobCodecCode(String packageName) {
+        return genBlobCodecCode(packageName, TemplateSet.getDefault());
+    }
+
+    public static String genBlobCodecCode(String packageName, TemplateSet templates) {
+        return templates.get(TemplateSet.CODEC).render(packageModel(packageName)).trim();
+    }
+
+    /**
+     * 生成的Dao是否用到BlobCodec，用到时需要同时生成BlobCodec类
+     */
+    public static boolean usesBlobCodec(List<GenerateInfo> infos) {
+        for (GenerateInfo info : infos) {
+            for (FieldInfo field : info.getFields()) {
+                if (TypeAdapters.get(field).usesBlobCodec(field)) {
+                    return true;
+                }
+            }
         }
-        sb.append("\n");
-        sb.append(StringUtils.formatSingleLine(2, "db.update(DataContract." + clazz.getName() + ".TABLE_NAME,"));
-        sb.append(StringUtils.formatSingleLine(4, "value,"));
-        sb.append(StringUtils.formatSingleLine(4, "DataContract." + clazz.getName() + "." + getColumnString(priKeyField) + " + \"=?\","));
-        if(priKeyField.getType().getPresentableText().equals("String")) {
-            sb.append(StringUtils.formatSingleLine(4, "new String[]{ " + genDataGetStr(priKeyField) + " });"));
-        } else {
-            sb.append(StringUtils.formatSingleLine(4, "new String[]{ String.valueOf(" + genDataGetStr(priKeyField) + ") });"));
+        return false;
+    }
+
+    private static TemplateModel packageModel(String packageName) {
+        return key -> key.equals("package") ? packageName : null;
+    }
+
+    /**
+     * 生成包含多个数据类的完整DataContract文件代码，用于IDE外批量生成
+     */
+    public static String genDataContractCode(String packageName, List<EntityInfo> entities, List<GenerateInfo> infos) {
+        return genDataContractCode(packageName, entities, infos, TemplateSet.getDefault());
+    }
+
+    public static String genDataContractCode(String packageName, List<EntityInfo> entities, List<GenerateInfo> infos,
+                                             TemplateSet templates) {
+        String code = genDataContractInitCode(packageName, templates);
+        StringBuilder sb = new StringBuilder(code.substring(0, code.lastIndexOf('}')));
+        for (int i = 0; i < entities.size(); i++) {
+            GenerateInfo info = infos.get(i);
+            sb.append("\n").append(indentCode(genBeanColumnsCode(entities.get(i), info.getFields(), info.getPriKeyFields(), templates)));
         }
-        sb.append(StringUtils.formatSingleLine(1, "}"));
+        return sb.append("}\n").toString();
     }
 
-    private static void genDaoGetListByKeyMethod(PsiClass clazz, ArrayList<PsiField> fields, PsiField priKeyField, StringBuilder sb) {
-        sb.append(StringUtils.formatSingleLine(1, "public " + clazz.getName() + " get" + clazz.getName() + "(String primaryKey) {"));
-        sb.append(StringUtils.formatSingleLine(2, "if(primaryKey == null) {"));
-        sb.append(StringUtils.formatSingleLine(3, "return null;"));
-        sb.append(StringUtils.formatSingleLine(2, "}"));
+    /**
+     * 生成编译时使用的DatabaseTables类，包含所有数据类的建表和索引方法，
+     * 在自己的SQLiteOpenHelper.onCreate中调用createAll即可
+     *
+     * <pre>
+     * public final class DatabaseTables {
+     *     public static void createAll(SQLiteDatabase db) {
+     *         DatabaseTables tables = new DatabaseTables();
+     *         tables.createUserTable(db);
+     *         tables.createUserIndexes(db);
+     *     }
+     *     ...
+     * }
+     * </pre>
+     */
+    public static String genDatabaseTablesCode(String packageName, List<EntityInfo> entities, List<GenerateInfo> infos) {
+        StringBuilder methods = new StringBuilder();
+        StringBuilder sb = new StringBuilder();
+        sb.append(StringUtils.formatSingleLine(0, "package " + packageName + ";"));
+        sb.append("\n");
+        sb.append(StringUtils.formatSingleLine(0, "import android.database.sqlite.SQLiteDatabase;"));
+        sb.append("\n");
+        sb.append(StringUtils.formatSingleLine(0, "public final class DatabaseTables {"));
         sb.append("\n");
-        sb.append(StringUtils.formatSingleLine(2, "SQLiteDatabase db = helper.getReadableDatabase();"));
-        sb.append(StringUtils.formatSingleLine(2, clazz.getName() + " data = null;"));
-        sb.append(StringUtils.formatSingleLine(2, "Cursor cursor = null;"));
-        sb.append(StringUtils.formatSingleLine(2, "try {"));
-        sb.append(StringUtils.formatSingleLine(3, "cursor = db.query(DataContract." + clazz.getName() + ".TABLE_NAME,"));
-        sb.append(StringUtils.formatSingleLine(5, "null,"));
-        sb.append(StringUtils.formatSingleLine(5, "DataContract." + clazz.getName() + "." + getColumnString(priKeyField) + " + \"=?\","));
-        sb.append(StringUtils.formatSingleLine(5, "new String[]{ primaryKey },"));
-        sb.append(StringUtils.formatSingleLine(5, "null,"));
-        sb.append(StringUtils.formatSingleLine(5, "null,"));
-        sb.append(StringUtils.formatSingleLine(5, "null);"));
-        sb.append(StringUtils.formatSingleLine(3, "if (cursor != null && cursor.moveToFirst()) {"));
-        sb.append(StringUtils.formatSingleLine(4, "data = new " + clazz.getName() + "();"));
-        for (PsiField field : fields) {
-            sb.append(StringUtils.formatSingleLine(4, genSetDataStr(clazz, field)));
-        }
-        sb.append(StringUtils.formatSingleLine(3, "}"));
-        sb.append(StringUtils.formatSingleLine(2, "} finally {"));
-        sb.append(StringUtils.formatSingleLine(3, "if (cursor != null) cursor.close();"));
-        sb.append(StringUtils.formatSingleLine(2, "}"));
-        sb.append(StringUtils.formatSingleLine(2, "return data;"));
+        sb.append(StringUtils.formatSingleLine(1, "public static void createAll(SQLiteDatabase db) {"));
+        sb.append(StringUtils.formatSingleLine(2, "DatabaseTables tables = new DatabaseTables();"));
+        for (int i = 0; i < entities.size(); i++) {
+            EntityInfo entity = entities.get(i);
+            GenerateInfo info = infos.get(i);
+            sb.append(StringUtils.formatSingleLine(2, "tables.create" + entity.getName() + "Table(db);"));
+            methods.append("\n").append(indentCode(genCreateTableCode(entity, info.getFields(), info.getPriKeyFields())));
+            if (!info.getIndexes().isEmpty()) {
+                sb.append(StringUtils.formatSingleLine(2, "tables.create" + entity.getName() + "Indexes(db);"));
+                methods.append("\n").append(indentCode(genCreateIndexCode(entity, info.getIndexes())));
+            }
+        }
         sb.append(StringUtils.formatSingleLine(1, "}"));
-    }
-
-    private static void genDaoDeleteByKeyMethod(PsiClass clazz, PsiField priKeyField, StringBuilder sb) {
-        sb.append(StringUtils.formatSingleLine(1, "public void delete" + clazz.getName() + "(String primaryKey) {"));
-        sb.append(StringUtils.formatSingleLine(2, "if(primaryKey == null) {"));
-        sb.append(StringUtils.formatSingleLine(3, "return;"));
-        sb.append(StringUtils.formatSingleLine(2, "}"));
         sb.append("\n");
-        sb.append(StringUtils.formatSingleLine(2, "SQLiteDatabase db = helper.getWritableDatabase();"));
-        sb.append(StringUtils.formatSingleLine(2, "db.delete(DataContract." + clazz.getName() + ".TABLE_NAME, DataContract." + clazz.getName() + "." + getColumnString(priKeyField) + " + \"=\" + primaryKey" + ", null);"));
+        sb.append(StringUtils.formatSingleLine(1, "private DatabaseTables() {"));
         sb.append(StringUtils.formatSingleLine(1, "}"));
+        sb.append(methods);
+        sb.append(StringUtils.formatSingleLine(0, "}"));
+        return sb.toString();
     }
 
-    private static String getColumnString(PsiField field) {
-        return StringUtils.camel2underline(field.getName()).toUpperCase();
+    /**
+     * 单独生成的方法或类代码整体缩进一层，拼接到文件代码中
+     */
+    public static String indentCode(String code) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : code.trim().split("\n")) {
+            sb.append(line.isEmpty() ? "" : "\t").append(line).append("\n");
+        }
+        return sb.toString();
     }
 
     /**
-     * 将基础类型等转为数据库对应的数据类型
-     * (boolean和date都作为String处理)
+     * 生成数据类字段Class内容代码，只有使用默认_ID主键时才继承BaseColumns
+     *
+     * <pre>
+     * String TABLE_NAME = "User";
+     * String USERNAME = "username";
+     * String IS_MALE = "is_male";
+     * String AGE = "age";
+     * </pre>
      */
-    private static String parseDbType(PsiField field) {
-        String type;
-        switch (field.getType().getPresentableText()) {
-            case "int":
-            case "Integer":
-            case "long":
-            case "Long":
-                type = "INTEGER";
-                break;
-            case "float":
-            case "Float":
-            case "double":
-            case "Double":
-                type = "REAL";
-                break;
-            case "boolean":
-            case "Boolean":
-                type = "INTEGER";
-                break;
-            default:
-                type = "TEXT";
-                break;
-        }
-        return type;
+    public static String genBeanColumnsCode(EntityInfo entity, ArrayList<FieldInfo> fields, FieldInfo priKeyField) {
+        return genBeanColumnsCode(entity, fields, priKeyField, TemplateSet.getDefault());
     }
 
-    private static String genDataGetStr(PsiField field) {
-        String getMethod;
-        if(field.getName().startsWith("is")) {
-            getMethod = field.getName() + "()";
-        } else {
-            getMethod = "get" + StringUtils.firstToUpperCase(field.getName()) + "()";
-        }
+    public static String genBeanColumnsCode(EntityInfo entity, ArrayList<FieldInfo> fields, FieldInfo priKeyField,
+                                            TemplateSet templates) {
+        EntityModel model = new EntityModel(entity, fields, priKeyField,
+                Collections.<ProjectionInfo>emptyList(), Collections.<IndexInfo>emptyList(), null, 0, null);
+        return templates.get(TemplateSet.COLUMNS).render(model).trim();
+    }
+
+    /**
+     * 生成Dao类，包含增删改查基础方法
+     */
+    public static String genDaoCode(EntityInfo entity, GenerateInfo info, String packageName) {
+        return genDaoCode(entity, info, packageName, TemplateSet.getDefault());
+    }
+
+    /**
+     * 使用指定的模板集合生成Dao类，内容见templates/dao.tpl
+     */
+    public static String genDaoCode(EntityInfo entity, GenerateInfo info, String packageName, TemplateSet templates) {
+        EntityModel model = new EntityModel(entity, info.getFields(), info.getPriKeyFields(),
+                info.getProjections(), info.getIndexes(), packageName, info.getCacheSize(), info.getConflictStrategy());
+        return templates.get(TemplateSet.DAO).render(model);
+    }
 
-        String value = "data." + getMethod;
-        if (field.getType().equals(PsiType.BOOLEAN)) {
-            value += " ? 1 : 0";
+    private static String getIndexNameString(EntityInfo entity, IndexInfo index) {
+        StringBuilder sb = new StringBuilder("idx_");
+        sb.append(StringUtils.camel2underline(entity.getName()).toLowerCase());
+        for (FieldInfo field : index.getFields()) {
+            sb.append("_").append(getColumnString(field).toLowerCase());
         }
-        return value;
+        return sb.toString();
     }
 
-    private static String genSetDataStr(PsiClass clazz, PsiField field) {
-        String type = "String";
-        String extra = "";
+    private static String getColumnString(FieldInfo field) {
+        return FieldModel.columnOf(field);
+    }
+
+    /**
+     * 字段对应的数据库列类型，由字段的TypeAdapter决定，如Date为INTEGER、集合为BLOB
+     */
+    private static String parseDbType(FieldInfo field) {
+        return FieldModel.dbTypeOf(field);
+    }
 
-        switch (field.getType().getPresentableText()) {
+    /**
+     * 主键是否可以作为rowid别名，默认_ID主键和整型自定义主键都是
+     */
+    private static boolean isRowidKey(FieldInfo priKeyField) {
+        if (priKeyField == null) {
+            return true;
+        }
+        switch (priKeyField.getType()) {
             case "int":
             case "Integer":
-                type = "Int";
-                break;
             case "long":
             case "Long":
-                type = "Long";
-                break;
-            case "float":
-            case "Float":
-                type = "Float";
-                break;
-            case "double":
-            case "Double":
-                type = "Double";
-                break;
-            case "boolean":
-            case "Boolean":
-                type = "Int";
-                extra = " == 1";
-                break;
-        }
-
-        String text = "data.%s(cursor.get%s(cursor.getColumnIndex(DataContract.%s.%s))%s);";
-        String setMethod = "set" + StringUtils.firstToUpperCase(field.getName());
-        if(field.getName().startsWith("is")) {
-            setMethod = setMethod.replaceFirst("Is", "");
-        }
-
-        return String.format(text, setMethod, type, clazz.getName(), getColumnString(field), extra);
+                return true;
+            default:
+                return false;
+        }
     }
 
 }
@@ -4,19 +4,37 @@ import com.intellij.ide.highlighter.JavaFileType;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
-import utils.AndroidUtils;
+import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.psi.javadoc.PsiDocComment;
+import core.template.TemplateSet;
+import entity.EntityInfo;
+import entity.GenerateInfo;
+import entity.TableSchema;
+import utils.AndroidModule;
+import utils.AndroidProjectService;
 import utils.PluginUtils;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Paths;
+import java.util.List;
 
 public class DatabaseGenerator {
 
-    public static void genCode(PsiFile file, PsiClass clazz, ArrayList<PsiField> fields, PsiField priKeyField) {
-        Project project = file.getProject();
+    /**
+     * 项目根目录下的自定义模板目录，其中的dao.tpl等文件会覆盖内置模板
+     */
+    public static final String TEMPLATE_DIR = "dbgen-templates";
 
-        // app包名根目录 ...\app\src\main\java\PACKAGE_NAME\
-        VirtualFile baseDir = AndroidUtils.getAppPackageBaseDir(project);
+    /**
+     * 批量生成，Dao代码字符串已经在后台生成好，这里只修改PSI，
+     * 需要在一次WriteCommandAction中调用，db目录和公共文件只查找一次
+     *
+     * @param module 生成到的模块，db目录在模块包名目录下
+     */
+    public static void genCode(Project project, AndroidModule module,
+                               List<EntityInfo> entities, List<GenerateInfo> infos, List<String> daoCodes) {
+        // 模块包名根目录 ...\app\src\main\java\PACKAGE_NAME\
+        VirtualFile baseDir = module.getPackageDir();
 
         // 判断根目录下是否有db文件夹
         VirtualFile dbDir = baseDir.findChild("db");
@@ -29,74 +47,236 @@ public class DatabaseGenerator {
             }
         }
 
-        // SqliteOpenHelper类
-        genHelperFile(clazz, fields, priKeyField, project, dbDir);
+        String packageName = getDbPackageName(module);
+        TemplateSet templates = getTemplateSet(project);
+        PsiDirectory dbDirectory = PsiManager.getInstance(project).findDirectory(dbDir);
+        // 已有DatabaseHelper说明可能已经有安装的数据库，新增的表也需要通过onUpgrade创建
+        boolean helperExists = dbDirectory.findFile("DatabaseHelper.java") != null;
+        PsiFile helperFile = findOrCreateFile(project, dbDirectory, "DatabaseHelper.java",
+                CodeFactory.genSqliteOpenHelperInitCode(packageName, templates));
+        PsiFile contractFile = findOrCreateFile(project, dbDirectory, "DataContract.java",
+                CodeFactory.genDataContractInitCode(packageName, templates));
+        if (CodeFactory.usesBlobCodec(infos)) {
+            // 集合字段的编解码类，已有时保留
+            findOrCreateFile(project, dbDirectory, "BlobCodec.java", CodeFactory.genBlobCodecCode(packageName, templates));
+        }
+
+        for (int i = 0; i < entities.size(); i++) {
+            EntityInfo entity = entities.get(i);
+            GenerateInfo info = infos.get(i);
+
+            // SqliteOpenHelper类
+            genHelperFile(entity, info, project, helperFile, helperExists);
 
-        // 数据类对应的Columns字段都统一的存在DataContract类中
-        genColumnFile(clazz, fields, project, dbDir);
+            // 数据类对应的Columns字段都统一的存在DataContract类中
+            genColumnFile(entity, info, project, contractFile, templates);
+
+            // 为每个数据类创建一个Dao类，包含基本的CRUD方法
+            genDaoFile(entity, daoCodes.get(i), project, dbDirectory);
+        }
+    }
+
+    /**
+     * 数据类生成到的模块，数据类所在模块没有包名或包名目录时生成到App模块，
+     * 可以在后台读操作中调用
+     */
+    public static AndroidModule getTargetModule(Project project, VirtualFile file) {
+        AndroidProjectService service = AndroidProjectService.getInstance(project);
+        AndroidModule module = service.findModule(file);
+        if (module == null || module.getPackageDir() == null) {
+            return service.getAppModule();
+        }
+        return module;
+    }
+
+    /**
+     * Dao代码使用的包名，可以在后台读操作中调用
+     */
+    public static String getDbPackageName(AndroidModule module) {
+        return module.getPackageName() + ".db";
+    }
 
-        // 为每个数据类创建一个Dao类，包含基本的CRUD方法
-        genDaoCode(clazz, fields, priKeyField, project, dbDir);
+    /**
+     * 项目使用的模板集合，项目根目录下没有自定义模板时使用内置模板
+     */
+    public static TemplateSet getTemplateSet(Project project) {
+        String basePath = project.getBasePath();
+        return TemplateSet.forDirectory(basePath == null ? null : Paths.get(basePath, TEMPLATE_DIR));
     }
 
-    private static void genHelperFile(PsiClass clazz, ArrayList<PsiField> fields, PsiField priKeyField,
-                                      Project project, VirtualFile dbDir) {
-        String name = "DatabaseHelper.java";
-        VirtualFile virtualFile = dbDir.findChild(name);
-        if(virtualFile == null) {
+    private static PsiFile findOrCreateFile(Project project, PsiDirectory dbDirectory, String name, String initCode) {
+        PsiFile psiFile = dbDirectory.findFile(name);
+        if(psiFile == null) {
             // 没有就创建一个，第一次使用代码字符串创建个类
             PsiFile initFile = PsiFileFactory.getInstance(project).createFileFromText(
-                    name, JavaFileType.INSTANCE, CodeFactory.genSqliteOpenHelperInitCode(dbDir));
+                    name, JavaFileType.INSTANCE, initCode);
 
             // 加到db目录下
-            PsiManager.getInstance(project).findDirectory(dbDir).add(initFile);
-            virtualFile = dbDir.findChild(name);
+            psiFile = (PsiFile) dbDirectory.add(initFile);
         }
+        return psiFile;
+    }
 
-        PsiFile psiFile = PsiManager.getInstance(project).findFile(virtualFile);
-        // 用拼接的代码生成create table方法
-        String createTableCode = CodeFactory.genCreateTableCode(clazz, fields, priKeyField);
+    /**
+     * @param helperExists 生成前是否已有DatabaseHelper，已有时新增的表同时在onUpgrade中创建
+     */
+    private static void genHelperFile(EntityInfo entity, GenerateInfo info, Project project, PsiFile psiFile,
+                                      boolean helperExists) {
+        // 用拼接的代码生成create table方法，方法注释中记录表结构
+        TableSchema schema = CodeFactory.genTableSchema(entity, info);
+        String createTableCode = CodeFactory.withFingerprint(CodeFactory.genSchemaComment(schema)
+                + CodeFactory.genCreateTableCode(entity, info.getFields(), info.getPriKeyFields()));
+        String createTableName = "create" + entity.getName() + "Table";
         PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
-        PsiMethod createTableMethod = factory.createMethodFromText(createTableCode, psiFile);
-        // 将创建的method添加到DatabaseHelper Class中
         PsiClass fileClass = PluginUtils.getFileClass(psiFile);
-        fileClass.add(createTableMethod);
-        // 在DatabaseHelper类中的onCreate方法里，添加create table方法的调用语句
         PsiMethod onCreateMethod = fileClass.findMethodsByName("onCreate", false)[0];
-        onCreateMethod.getBody().add(factory.createStatementFromText(createTableMethod.getName() + "(db);", fileClass));
+        PsiMethod[] oldCreateTableMethods = fileClass.findMethodsByName(createTableName, false);
+        if(oldCreateTableMethods.length == 0) {
+            // 将创建的method添加到DatabaseHelper Class中
+            fileClass.add(factory.createMethodFromText(createTableCode, psiFile));
+            // 在DatabaseHelper类中的onCreate方法里，添加create table方法的调用语句
+            onCreateMethod.getBody().add(factory.createStatementFromText(createTableName + "(db);", fileClass));
+            if(helperExists) {
+                // 已安装的数据库不会再调用onCreate，升级版本后创建表和索引
+                genMigration(entity, null, schema, fileClass, psiFile, factory);
+            }
+        } else if(needReplace(oldCreateTableMethods[0], createTableCode)) {
+            // 再次生成，新安装使用新的create table方法，已安装的通过onUpgrade迁移
+            PsiMethod oldCreateTableMethod = oldCreateTableMethods[0];
+            PsiDocComment oldComment = oldCreateTableMethod.getDocComment();
+            TableSchema oldSchema = CodeFactory.parseSchemaComment(oldComment == null ? null : oldComment.getText());
+            oldCreateTableMethod.replace(factory.createMethodFromText(createTableCode, psiFile));
+            if(oldSchema != null) {
+                genMigration(entity, oldSchema, schema, fileClass, psiFile, factory);
+            }
+        }
+
+        // 连接配置只添加一次，已有onConfigure方法时保留用户的配置
+        String configureCode = CodeFactory.genConfigureCode(info.getDatabaseOptions());
+        if(configureCode != null && fileClass.findMethodsByName("onConfigure", false).length == 0) {
+            PsiMethod configureMethod = factory.createMethodFromText(configureCode, psiFile);
+            PsiElement added = fileClass.add(configureMethod);
+            JavaCodeStyleManager.getInstance(project).shortenClassReferences(added);
+        }
+
+        // 二级索引紧跟在create table调用之后创建，再次生成时同步增删
+        String createIndexName = "create" + entity.getName() + "Indexes";
+        PsiMethod[] oldCreateIndexMethods = fileClass.findMethodsByName(createIndexName, false);
+        PsiStatement createIndexCall = findCallStatement(onCreateMethod, createIndexName);
+        if(!info.getIndexes().isEmpty()) {
+            String createIndexCode = CodeFactory.withFingerprint(CodeFactory.genCreateIndexCode(entity, info.getIndexes()));
+            if(oldCreateIndexMethods.length == 0) {
+                fileClass.add(factory.createMethodFromText(createIndexCode, psiFile));
+            } else if(needReplace(oldCreateIndexMethods[0], createIndexCode)) {
+                oldCreateIndexMethods[0].replace(factory.createMethodFromText(createIndexCode, psiFile));
+            }
+            if(createIndexCall == null) {
+                PsiStatement createTableCall = findCallStatement(onCreateMethod, createTableName);
+                onCreateMethod.getBody().addAfter(
+                        factory.createStatementFromText(createIndexName + "(db);", fileClass), createTableCall);
+            }
+        } else {
+            for (PsiMethod method : oldCreateIndexMethods) {
+                method.delete();
+            }
+            if(createIndexCall != null) {
+                createIndexCall.delete();
+            }
+        }
     }
 
-    private static void genColumnFile(PsiClass clazz, ArrayList<PsiField> fields, Project project, VirtualFile dbDir) {
-        String name = "DataContract.java";
-        VirtualFile virtualFile = dbDir.findChild(name);
-        if(virtualFile == null) {
-            // 没有就创建一个，第一次使用代码字符串创建个类
-            PsiFile initFile = PsiFileFactory.getInstance(project).createFileFromText(
-                    name, JavaFileType.INSTANCE, CodeFactory.genDataContractInitCode(dbDir));
+    /**
+     * 表结构有变化或新增表时，DB_VERSION加一，并在onUpgrade中添加对应版本的迁移方法调用
+     *
+     * @param oldSchema 新增表时为null
+     */
+    private static void genMigration(EntityInfo entity, TableSchema oldSchema, TableSchema schema,
+                                     PsiClass fileClass, PsiFile psiFile, PsiElementFactory factory) {
+        PsiField versionField = fileClass.findFieldByName("DB_VERSION", false);
+        if(versionField == null || versionField.getInitializer() == null) {
+            return;
+        }
+        int version;
+        try {
+            version = Integer.parseInt(versionField.getInitializer().getText().trim()) + 1;
+        } catch (NumberFormatException e) {
+            // DB_VERSION不是数字常量时无法自动升级
+            return;
+        }
 
-            // 加到db目录下
-            PsiManager.getInstance(project).findDirectory(dbDir).add(initFile);
-            virtualFile = dbDir.findChild(name);
+        String migrationCode = CodeFactory.genMigrationCode(entity, oldSchema, schema, version);
+        if(migrationCode == null) {
+            return;
         }
+        versionField.getInitializer().replace(factory.createExpressionFromText(String.valueOf(version), fileClass));
+        PsiMethod migrationMethod = factory.createMethodFromText(migrationCode, psiFile);
+        fileClass.add(migrationMethod);
+        PsiMethod onUpgradeMethod = fileClass.findMethodsByName("onUpgrade", false)[0];
+        onUpgradeMethod.getBody().add(factory.createStatementFromText(
+                "if (oldVersion < " + version + ") {\n" + migrationMethod.getName() + "(db);\n}", fileClass));
+    }
 
-        PsiFile psiFile = PsiManager.getInstance(project).findFile(virtualFile);
-        // 用拼接的代码生成Columns Class
-        String beanColumnsCode = CodeFactory.genBeanColumnsCode(clazz, fields);
+    /**
+     * 根据指纹判断是否用新生成的代码替换已有代码：指纹相同说明生成内容没变，跳过；
+     * 已有代码内容和它记录的指纹不一致说明被手动修改过，保留不动；没有指纹的旧代码直接替换
+     */
+    private static boolean needReplace(PsiElement oldElement, String newCode) {
+        String oldText = oldElement.getText();
+        String oldFingerprint = CodeFactory.getFingerprint(oldText);
+        if(oldFingerprint == null) {
+            return true;
+        }
+        if(oldFingerprint.equals(CodeFactory.getFingerprint(newCode))) {
+            return false;
+        }
+        return oldFingerprint.equals(CodeFactory.computeFingerprint(oldText));
+    }
+
+    private static PsiStatement findCallStatement(PsiMethod method, String callMethodName) {
+        for (PsiStatement statement : method.getBody().getStatements()) {
+            if(statement.getText().startsWith(callMethodName + "(")) {
+                return statement;
+            }
+        }
+        return null;
+    }
+
+    private static void genColumnFile(EntityInfo entity, GenerateInfo info, Project project, PsiFile psiFile, TemplateSet templates) {
+        // 用模板生成Columns Class
+        String beanColumnsCode = CodeFactory.withFingerprint(
+                CodeFactory.genBeanColumnsCode(entity, info.getFields(), info.getPriKeyFields(), templates));
         PsiElementFactory factory = JavaPsiFacade.getInstance(project).getElementFactory();
-        PsiClass beanColumnsClass = factory.createClassFromText(beanColumnsCode, psiFile);
         // 将创建的class添加到DataContract Class中
         PsiClass fileClass = PluginUtils.getFileClass(psiFile);
-        fileClass.add(beanColumnsClass.getInnerClasses()[0]);
+        PsiClass oldColumnsClass = fileClass.findInnerClassByName(entity.getName(), false);
+        if(oldColumnsClass == null) {
+            fileClass.add(factory.createClassFromText(beanColumnsCode, psiFile).getInnerClasses()[0]);
+        } else if(needReplace(oldColumnsClass, beanColumnsCode)) {
+            // 再次生成时替换原有的Columns Class
+            oldColumnsClass.replace(factory.createClassFromText(beanColumnsCode, psiFile).getInnerClasses()[0]);
+        }
     }
 
-    private static void genDaoCode(PsiClass clazz, ArrayList<PsiField> fields, PsiField priKeyField,
-                                   Project project, VirtualFile dbDir) {
-        String name = clazz.getName() + "Dao.java";
+    /**
+     * @param daoCode 已经添加了指纹的Dao代码
+     */
+    private static void genDaoFile(EntityInfo entity, String daoCode, Project project, PsiDirectory dbDirectory) {
+        String name = entity.getName() + "Dao.java";
+
+        // 再次生成时替换原有的Dao文件，没有变化或者手动修改过时保留
+        PsiFile oldFile = dbDirectory.findFile(name);
+        if(oldFile != null) {
+            if(!needReplace(oldFile, daoCode)) {
+                return;
+            }
+            oldFile.delete();
+        }
+
         // 使用代码字符串创建个类
         PsiFile initFile = PsiFileFactory.getInstance(project).createFileFromText(
-                name, JavaFileType.INSTANCE, CodeFactory.genDaoCode(clazz, fields, priKeyField, dbDir));
+                name, JavaFileType.INSTANCE, daoCode);
 
         // 加到db目录下
-        PsiManager.getInstance(project).findDirectory(dbDir).add(initFile);
+        dbDirectory.add(initFile);
     }
 }
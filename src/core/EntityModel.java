@@ -0,0 +1,309 @@
+package core;
+
+import core.template.TemplateModel;
+import entity.EntityInfo;
+import entity.FieldInfo;
+import entity.GenerateInfo;
+import entity.IndexInfo;
+import entity.ProjectionInfo;
+import utils.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 数据类生成代码时的模板模型，每次生成时创建一次，
+ * 模板中用到的派生名称和SQL片段都在创建时计算好
+ */
+final class EntityModel implements TemplateModel {
+
+    private static final String KEYS_VALUE = "keyList.get(offset + Math.min(i, count - 1))";
+
+    private final String packageName;
+    private final String name;
+    private final String qualifiedName;
+    private final String dao;
+    private final String table;
+    private final String tableName;
+    private final List<FieldModel> fields = new ArrayList<>();
+    private final List<FieldModel> updateFields = new ArrayList<>();
+    private final List<BindModel> insertBinds = new ArrayList<>();
+    private final List<BindModel> updateBinds = new ArrayList<>();
+    private final List<BindModel> changedBinds = new ArrayList<>();
+    private final List<ProjectionModel> projections = new ArrayList<>();
+    private final List<IndexModel> indexes = new ArrayList<>();
+    private final List<FieldModel> aggregateFields = new ArrayList<>();
+    private final List<FieldModel> queryFields = new ArrayList<>();
+    private final FieldModel key;
+    private final String insertPlaceholders;
+    private final int cacheSize;
+    private final String conflictStrategy;
+    private final boolean uniqueIndexed;
+    // 同一字段在字段列表、索引和投影中只计算一次，只在本次生成中使用
+    private final Map<FieldInfo, FieldModel> fieldModels = new HashMap<>();
+
+    EntityModel(EntityInfo entity, List<FieldInfo> fieldInfos, FieldInfo priKeyField,
+                List<ProjectionInfo> projectionInfos, List<IndexInfo> indexInfos, String packageName, int cacheSize,
+                String conflictStrategy) {
+        this.packageName = packageName;
+        this.name = entity.getName();
+        this.qualifiedName = entity.getQualifiedName();
+        this.dao = name + "Dao";
+        this.table = "DataContract." + name;
+        this.tableName = StringUtils.camel2underline(name);
+        this.key = priKeyField == null ? null : getFieldModel(priKeyField);
+        if (key != null && !key.isQueryable()) {
+            throw new IllegalArgumentException("primary key " + priKeyField + " can not be stored as " + key.getDbType());
+        }
+        // 按主键缓存，没有自定义主键时不缓存
+        this.cacheSize = key == null ? 0 : cacheSize;
+        this.conflictStrategy = conflictStrategy;
+
+        StringBuilder placeholders = new StringBuilder();
+        for (FieldInfo fieldInfo : fieldInfos) {
+            FieldModel field = getFieldModel(fieldInfo);
+            fields.add(field);
+            insertBinds.add(new BindModel(field, "offset + " + fields.size()));
+            placeholders.append(placeholders.length() == 0 ? "" : ", ").append("?");
+            if (field.isQueryable()) {
+                queryFields.add(field);
+            }
+            if (field.isAggregatable()) {
+                aggregateFields.add(field);
+            }
+            if (fieldInfo != priKeyField) {
+                updateFields.add(field);
+                updateBinds.add(new BindModel(field, String.valueOf(updateFields.size())));
+                // 只更新变化的列时绑定位置依次递增
+                changedBinds.add(new BindModel(field, "++index"));
+            }
+        }
+        if (key != null) {
+            // 主键作为UPDATE语句WHERE条件的最后一个参数
+            updateBinds.add(new BindModel(key, String.valueOf(updateFields.size() + 1)));
+        }
+        this.insertPlaceholders = placeholders.toString();
+
+        for (ProjectionInfo projection : projectionInfos) {
+            projections.add(new ProjectionModel(projection.getName(), getFieldModels(projection.getFields())));
+        }
+        boolean unique = false;
+        for (IndexInfo index : indexInfos) {
+            unique |= index.isUnique();
+            // BLOB等不能作为查询参数的列只建索引，不生成查询方法
+            List<FieldModel> indexFields = getFieldModels(index.getFields());
+            if (isQueryable(indexFields)) {
+                indexes.add(new IndexModel(indexFields, index.isUnique(), table));
+            }
+        }
+        this.uniqueIndexed = unique;
+    }
+
+    @Override
+    public Object get(String key) {
+        switch (key) {
+            case "package":
+                return packageName;
+            case "name":
+                return name;
+            case "qualifiedName":
+                return qualifiedName;
+            case "dao":
+                return dao;
+            case "table":
+                return table;
+            case "tableName":
+                return tableName;
+            case "fields":
+                return fields;
+            case "columnCount":
+                return fields.size();
+            case "insertPlaceholders":
+                return insertPlaceholders;
+            case "insertBinds":
+                return insertBinds;
+            case "key":
+                return this.key;
+            case "updateFields":
+                return updateFields;
+            case "updateBinds":
+                return updateBinds;
+            case "changedBinds":
+                return changedBinds;
+            case "projections":
+                return projections;
+            case "indexes":
+                return indexes;
+            case "aggregateFields":
+                return aggregateFields;
+            case "queryFields":
+                return queryFields;
+            case "cache":
+                return cacheSize > 0;
+            case "cacheSize":
+                return cacheSize;
+            case "upsertUpdate":
+                return GenerateInfo.CONFLICT_UPDATE.equalsIgnoreCase(conflictStrategy);
+            case "upsertClearsCache":
+                // INSERT OR REPLACE还会删除唯一索引冲突的其它行，无法知道删除了哪些主键，只能清空缓存
+                return cacheSize > 0 && uniqueIndexed && !GenerateInfo.CONFLICT_UPDATE.equalsIgnoreCase(conflictStrategy);
+            case "pageKeyType":
+                // 没有自定义主键时使用long类型的_ID分页
+                return this.key == null ? "long" : this.key.get("declaredType");
+            case "pageKeyColumn":
+                return this.key == null ? "_ID" : this.key.getColumn();
+            case "pageNextKey":
+                // 主键按类型适配器读取，如Date主键存为INTEGER
+                return this.key == null ? "cursor.getLong(cursor.getColumnIndex(" + table + "._ID))"
+                        : this.key.genCursorValue("cursor.getColumnIndex(" + table + "." + this.key.getColumn() + ")");
+            case "pageKeyInit":
+                return this.key == null || this.key.isPrimitive() ? "0" : "null";
+            case "pageAfterKey":
+                // 主键值按查询参数转换，如枚举主键按ordinal比较
+                if (this.key == null) {
+                    return "String.valueOf(afterKey)";
+                }
+                String afterKey = this.key.genSelectionArg("afterKey");
+                return this.key.isPrimitive() || afterKey.equals("afterKey") ? afterKey : "afterKey == null ? null : " + afterKey;
+            case "keyArg":
+                return this.key == null ? null : this.key.genSelectionArg("primaryKey");
+            case "keysArg":
+                return this.key == null ? null : this.key.genSelectionArg("key");
+            case "keyBindValue":
+                return this.key == null ? null : this.key.genBindValue("primaryKey");
+            case "keysBindValue":
+                return this.key == null ? null : this.key.genBindValue(KEYS_VALUE);
+            default:
+                return null;
+        }
+    }
+
+    private FieldModel getFieldModel(FieldInfo field) {
+        return fieldModels.computeIfAbsent(field, FieldModel::new);
+    }
+
+    private List<FieldModel> getFieldModels(List<FieldInfo> fieldInfos) {
+        List<FieldModel> models = new ArrayList<>();
+        for (FieldInfo field : fieldInfos) {
+            models.add(getFieldModel(field));
+        }
+        return models;
+    }
+
+    private static boolean isQueryable(List<FieldModel> fields) {
+        for (FieldModel field : fields) {
+            if (!field.isQueryable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 绑定参数，index为绑定位置的表达式
+     */
+    private static final class BindModel implements TemplateModel {
+        private final FieldModel field;
+        private final String index;
+
+        BindModel(FieldModel field, String index) {
+            this.field = field;
+            this.index = index;
+        }
+
+        @Override
+        public Object get(String key) {
+            return key.equals("index") ? index : field.get(key);
+        }
+    }
+
+    private static final class ProjectionModel implements TemplateModel {
+        private final String name;
+        private final String columnsConst;
+        private final List<FieldModel> fields;
+
+        ProjectionModel(String name, List<FieldModel> fields) {
+            this.name = name;
+            this.columnsConst = StringUtils.camel2underline(name).toUpperCase() + "_COLUMNS";
+            this.fields = fields;
+        }
+
+        @Override
+        public Object get(String key) {
+            switch (key) {
+                case "name":
+                    return name;
+                case "columnsConst":
+                    return columnsConst;
+                case "fields":
+                    return fields;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * 索引查询方法，方法名、参数列表和查询条件按索引列拼接
+     *
+     * <pre>
+     * suffix: AgeAndIsMale
+     * params: int age, boolean isMale
+     * selection: DataContract.User.AGE + "=? AND " + DataContract.User.IS_MALE + "=?"
+     * selectionArgs: String.valueOf(age), isMale ? "1" : "0"
+     * </pre>
+     */
+    private static final class IndexModel implements TemplateModel {
+        private final boolean unique;
+        private final String suffix;
+        private final String params;
+        private final String selection;
+        private final String selectionArgs;
+        private final List<FieldModel> nullableFields = new ArrayList<>();
+
+        IndexModel(List<FieldModel> fields, boolean unique, String table) {
+            this.unique = unique;
+            StringBuilder suffixSb = new StringBuilder();
+            StringBuilder paramsSb = new StringBuilder();
+            StringBuilder selectionSb = new StringBuilder();
+            StringBuilder argsSb = new StringBuilder();
+            for (int i = 0; i < fields.size(); i++) {
+                FieldModel field = fields.get(i);
+                String fieldName = field.getField().getName();
+                suffixSb.append(i == 0 ? "" : "And").append(field.get("upperName"));
+                paramsSb.append(i == 0 ? "" : ", ").append(field.get("declaredType")).append(" ").append(fieldName);
+                selectionSb.append(i == 0 ? "" : " AND \" + ").append(table).append(".").append(field.getColumn()).append(" + \"=?");
+                argsSb.append(i == 0 ? "" : ", ").append(field.get("selectionArg"));
+                if (!field.isPrimitive()) {
+                    nullableFields.add(field);
+                }
+            }
+            this.suffix = suffixSb.toString();
+            this.params = paramsSb.toString();
+            this.selection = selectionSb.append("\"").toString();
+            this.selectionArgs = argsSb.toString();
+        }
+
+        @Override
+        public Object get(String key) {
+            switch (key) {
+                case "unique":
+                    return unique;
+                case "suffix":
+                    return suffix;
+                case "params":
+                    return params;
+                case "selection":
+                    return selection;
+                case "selectionArgs":
+                    return selectionArgs;
+                case "nullableFields":
+                    return nullableFields;
+                default:
+                    return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package core;
+
+import core.adapter.TypeAdapter;
+import core.adapter.TypeAdapters;
+import core.template.TemplateModel;
+import entity.FieldInfo;
+import utils.StringUtils;
+
+/**
+ * 字段在生成代码中用到的名称和类型映射，如列名、getter/setter、绑定和游标取值方法，
+ * 类型相关的代码由字段的TypeAdapter生成。每个字段只计算一次并缓存
+ */
+final class FieldModel implements TemplateModel {
+
+    private final FieldInfo field;
+    private final TypeAdapter adapter;
+    private final String upperName;
+    private final String column;
+    private final String columnValue;
+    private final String indexVar;
+    private final String getter;
+    private final String setter;
+    private final String dbType;
+    private final String bindMethod;
+    private final String bindValue;
+    private final String cursorValue;
+    private final String declaredType;
+    private final String boxedType;
+    private final String selectionArg;
+    private final boolean primitive;
+    private final String aggregateType;
+    private final String changed;
+
+    FieldModel(FieldInfo field) {
+        this.field = field;
+        String name = field.getName();
+        upperName = StringUtils.firstToUpperCase(name);
+        column = columnOf(field);
+        columnValue = column.toLowerCase();
+        indexVar = name + "Index";
+        getter = "data." + (name.startsWith("is") ? name : "get" + upperName) + "()";
+        setter = name.startsWith("is") ? ("set" + upperName).replaceFirst("Is", "") : "set" + upperName;
+        adapter = TypeAdapters.get(field);
+        dbType = dbTypeOf(field, adapter);
+        bindMethod = adapter.getBindMethod(field);
+        bindValue = genBindValue(getter);
+        cursorValue = adapter.genCursorValue(field, indexVar);
+        declaredType = checkDeclaredType(adapter.getDeclaredType(field));
+        boxedType = parseBoxedType(declaredType);
+        selectionArg = genSelectionArg(name);
+        primitive = isPrimitiveType(field.getType());
+        aggregateType = parseAggregateType(field.getType(), dbType);
+        changed = genChanged(getter, getter.replaceFirst("^data\\.", "oldData."));
+    }
+
+    /**
+     * 字段对应的列常量名，如 createTime 为 CREATE_TIME
+     */
+    static String columnOf(FieldInfo field) {
+        return StringUtils.camel2underline(field.getName()).toUpperCase();
+    }
+
+    /**
+     * 建表语句中的列类型，绑定方法仍按字段类型选择，自定义列类型只影响建表语句
+     */
+    static String dbTypeOf(FieldInfo field) {
+        return dbTypeOf(field, TypeAdapters.get(field));
+    }
+
+    private static String dbTypeOf(FieldInfo field, TypeAdapter adapter) {
+        return field.getColumnType() != null ? field.getColumnType() : adapter.getDbType(field);
+    }
+
+    @Override
+    public Object get(String key) {
+        switch (key) {
+            case "name":
+                return field.getName();
+            case "type":
+                return field.getType();
+            case "upperName":
+                return upperName;
+            case "column":
+                return column;
+            case "columnValue":
+                return columnValue;
+            case "indexVar":
+                return indexVar;
+            case "getter":
+                return getter;
+            case "setter":
+                return setter;
+            case "dbType":
+                return dbType;
+            case "bindMethod":
+                return bindMethod;
+            case "bindValue":
+                return bindValue;
+            case "cursorValue":
+                return cursorValue;
+            case "declaredType":
+                return declaredType;
+            case "boxedType":
+                return boxedType;
+            case "selectionArg":
+                return selectionArg;
+            case "primitive":
+                return primitive;
+            case "aggregateType":
+                return aggregateType;
+            case "aggregateBoxedType":
+                return aggregateType == null ? null : parseBoxedType(aggregateType);
+            case "integral":
+                return "long".equals(aggregateType);
+            case "comparable":
+                return isComparable();
+            case "changed":
+                return changed;
+            default:
+                return null;
+        }
+    }
+
+    FieldInfo getField() {
+        return field;
+    }
+
+    String getColumn() {
+        return column;
+    }
+
+    String getDbType() {
+        return dbType;
+    }
+
+    boolean isPrimitive() {
+        return primitive;
+    }
+
+    /**
+     * 可以在SQL中做sum/min/max/avg的数值列
+     */
+    boolean isAggregatable() {
+        return aggregateType != null;
+    }
+
+    /**
+     * 可以作为查询条件的列，BLOB等列为false
+     */
+    boolean isQueryable() {
+        return selectionArg != null;
+    }
+
+    /**
+     * 可以按大小比较的列，boolean和按ordinal存储的枚举只比较相等
+     */
+    private boolean isComparable() {
+        return isQueryable() && field.getEnumClass() == null && !field.getType().equalsIgnoreCase("boolean");
+    }
+
+    /**
+     * 绑定到SQLiteStatement的值，如boolean按1/0绑定
+     */
+    String genBindValue(String value) {
+        return adapter.genBindValue(field, value);
+    }
+
+    /**
+     * 从游标读取字段值，index为列索引表达式
+     */
+    String genCursorValue(String index) {
+        return adapter.genCursorValue(field, index);
+    }
+
+    /**
+     * 查询参数字符串，不支持按该字段查询时为null
+     */
+    String genSelectionArg(String value) {
+        return adapter.genSelectionArg(field, value);
+    }
+
+    /**
+     * 生成的代码只导入数据类，声明类型需要是基础类型、java.lang中的类型或完整类名，
+     * 否则生成的代码无法编译，在生成时直接报错
+     */
+    private String checkDeclaredType(String type) {
+        String base = type.replaceAll("<.*>", "").replace("[]", "");
+        if (base.contains(".") || StringUtils.isImplicitType(base)) {
+            return type;
+        }
+        throw new IllegalArgumentException("cannot resolve type " + type + " of field " + field.getName()
+                + ", TypeAdapter.getDeclaredType must return a fully qualified name");
+    }
+
+    /**
+     * 新旧对象中字段值不同的判断表达式，基础类型直接比较，数组比较内容，其它类型用equals
+     *
+     * <pre>
+     * int age: oldData.getAge() != data.getAge()
+     * String name: oldData.getName() == null ? data.getName() != null : !oldData.getName().equals(data.getName())
+     * </pre>
+     */
+    private String genChanged(String value, String oldValue) {
+        if (isPrimitiveType(field.getType())) {
+            return oldValue + " != " + value;
+        }
+        if (field.getType().endsWith("[]")) {
+            return "!java.util.Arrays.equals(" + oldValue + ", " + value + ")";
+        }
+        return oldValue + " == null ? " + value + " != null : !" + oldValue + ".equals(" + value + ")";
+    }
+
+    /**
+     * 聚合结果类型，整型列为long，浮点列为double，boolean和非数值列为null
+     */
+    private static String parseAggregateType(String type, String dbType) {
+        if (!dbType.equals("INTEGER") && !dbType.equals("REAL") && !dbType.equals("NUMERIC")) {
+            return null;
+        }
+        switch (type) {
+            case "int":
+            case "Integer":
+            case "long":
+            case "Long":
+                return "long";
+            case "float":
+            case "Float":
+            case "double":
+            case "Double":
+                return "double";
+            default:
+                return null;
+        }
+    }
+
+    private static String parseBoxedType(String type) {
+        switch (type) {
+            case "int":
+                return "Integer";
+            case "long":
+                return "Long";
+            case "float":
+                return "Float";
+            case "double":
+                return "Double";
+            case "boolean":
+                return "Boolean";
+            default:
+                return type;
+        }
+    }
+
+    private static boolean isPrimitiveType(String type) {
+        switch (type) {
+            case "int":
+            case "long":
+            case "float":
+            case "double":
+            case "boolean":
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package core.adapter;
+
+import entity.FieldInfo;
+
+/**
+ * 基础类型、包装类型和String
+ */
+class BasicTypeAdapter implements TypeAdapter {
+
+    @Override
+    public boolean supports(FieldInfo field) {
+        switch (field.getType()) {
+            case "int":
+            case "Integer":
+            case "long":
+            case "Long":
+            case "boolean":
+            case "Boolean":
+            case "float":
+            case "Float":
+            case "double":
+            case "Double":
+            case "String":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 将基础类型等转为数据库对应的数据类型
+     */
+    @Override
+    public String getDbType(FieldInfo field) {
+        switch (field.getType()) {
+            case "int":
+            case "Integer":
+            case "long":
+            case "Long":
+            case "boolean":
+            case "Boolean":
+                return "INTEGER";
+            case "float":
+            case "Float":
+            case "double":
+            case "Double":
+                return "REAL";
+            default:
+                return "TEXT";
+        }
+    }
+
+    @Override
+    public String getBindMethod(FieldInfo field) {
+        String dbType = getDbType(field);
+        return dbType.equals("INTEGER") ? "bindLong" : dbType.equals("REAL") ? "bindDouble" : "bindString";
+    }
+
+    /**
+     * boolean按1/0绑定
+     */
+    @Override
+    public String genBindValue(FieldInfo field, String value) {
+        if (field.getType().equalsIgnoreCase("boolean")) {
+            return value + " ? 1 : 0";
+        }
+        return value;
+    }
+
+    @Override
+    public String genCursorValue(FieldInfo field, String index) {
+        String extra = field.getType().equalsIgnoreCase("boolean") ? " == 1" : "";
+        return "cursor.get" + getCursorType(field.getType()) + "(" + index + ")" + extra;
+    }
+
+    /**
+     * boolean按数据库中的1/0比较
+     */
+    @Override
+    public String genSelectionArg(FieldInfo field, String value) {
+        switch (field.getType()) {
+            case "String":
+                return value;
+            case "boolean":
+            case "Boolean":
+                return value + " ? \"1\" : \"0\"";
+            default:
+                return "String.valueOf(" + value + ")";
+        }
+    }
+
+    /**
+     * 字段对应的Cursor取值方法类型，如getInt/getLong/getString
+     */
+    private static String getCursorType(String type) {
+        switch (type) {
+            case "int":
+            case "Integer":
+            case "boolean":
+            case "Boolean":
+                return "Int";
+            case "long":
+            case "Long":
+                return "Long";
+            case "float":
+            case "Float":
+                return "Float";
+            case "double":
+            case "Double":
+                return "Double";
+            default:
+                return "String";
+        }
+    }
+}
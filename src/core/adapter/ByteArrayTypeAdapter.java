@@ -0,0 +1,39 @@
+package core.adapter;
+
+import entity.FieldInfo;
+
+/**
+ * byte[]直接存为BLOB
+ */
+class ByteArrayTypeAdapter implements TypeAdapter {
+
+    @Override
+    public boolean supports(FieldInfo field) {
+        return field.getType().equals("byte[]");
+    }
+
+    @Override
+    public String getDbType(FieldInfo field) {
+        return "BLOB";
+    }
+
+    @Override
+    public String getBindMethod(FieldInfo field) {
+        return "bindBlob";
+    }
+
+    @Override
+    public String genBindValue(FieldInfo field, String value) {
+        return value;
+    }
+
+    @Override
+    public String genCursorValue(FieldInfo field, String index) {
+        return "cursor.getBlob(" + index + ")";
+    }
+
+    @Override
+    public String genSelectionArg(FieldInfo field, String value) {
+        return null;
+    }
+}
@@ -0,0 +1,69 @@
+package core.adapter;
+
+import entity.FieldInfo;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * String和包装类型的List、Set集合，用BlobCodec编码为紧凑的二进制存为BLOB
+ *
+ * <pre>
+ * List&lt;String&gt; tags
+ * bindValue: BlobCodec.writeCollection(data.getTags())
+ * cursorValue: cursor.isNull(tagsIndex) ? null : BlobCodec.readList(cursor.getBlob(tagsIndex))
+ * </pre>
+ */
+class CollectionTypeAdapter implements TypeAdapter {
+
+    private static final Pattern COLLECTION_PATTERN = Pattern.compile(
+            "(?:java\\.util\\.)?(List|ArrayList|Collection|Set|HashSet|LinkedHashSet)<(?:java\\.lang\\.)?(String|Integer|Long|Double|Float|Boolean)>");
+
+    @Override
+    public boolean supports(FieldInfo field) {
+        return COLLECTION_PATTERN.matcher(field.getType()).matches();
+    }
+
+    @Override
+    public String getDbType(FieldInfo field) {
+        return "BLOB";
+    }
+
+    @Override
+    public String getBindMethod(FieldInfo field) {
+        return "bindBlob";
+    }
+
+    @Override
+    public String genBindValue(FieldInfo field, String value) {
+        return "BlobCodec.writeCollection(" + value + ")";
+    }
+
+    @Override
+    public String genCursorValue(FieldInfo field, String index) {
+        String method = match(field).group(1).endsWith("Set") ? "readSet" : "readList";
+        return "cursor.isNull(" + index + ") ? null : BlobCodec." + method + "(cursor.getBlob(" + index + "))";
+    }
+
+    @Override
+    public String genSelectionArg(FieldInfo field, String value) {
+        return null;
+    }
+
+    @Override
+    public String getDeclaredType(FieldInfo field) {
+        Matcher matcher = match(field);
+        return "java.util." + matcher.group(1) + "<" + matcher.group(2) + ">";
+    }
+
+    @Override
+    public boolean usesBlobCodec(FieldInfo field) {
+        return true;
+    }
+
+    private static Matcher match(FieldInfo field) {
+        Matcher matcher = COLLECTION_PATTERN.matcher(field.getType());
+        matcher.matches();
+        return matcher;
+    }
+}
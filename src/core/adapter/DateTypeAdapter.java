@@ -0,0 +1,44 @@
+package core.adapter;
+
+import entity.FieldInfo;
+
+/**
+ * java.util.Date按毫秒时间戳存为INTEGER
+ */
+class DateTypeAdapter implements TypeAdapter {
+
+    @Override
+    public boolean supports(FieldInfo field) {
+        return field.getType().equals("Date") || field.getType().equals("java.util.Date");
+    }
+
+    @Override
+    public String getDbType(FieldInfo field) {
+        return "INTEGER";
+    }
+
+    @Override
+    public String getBindMethod(FieldInfo field) {
+        return "bindLong";
+    }
+
+    @Override
+    public String genBindValue(FieldInfo field, String value) {
+        return value + ".getTime()";
+    }
+
+    @Override
+    public String genCursorValue(FieldInfo field, String index) {
+        return "cursor.isNull(" + index + ") ? null : new java.util.Date(cursor.getLong(" + index + "))";
+    }
+
+    @Override
+    public String genSelectionArg(FieldInfo field, String value) {
+        return "String.valueOf(" + value + ".getTime())";
+    }
+
+    @Override
+    public String getDeclaredType(FieldInfo field) {
+        return "java.util.Date";
+    }
+}
@@ -0,0 +1,44 @@
+package core.adapter;
+
+import entity.FieldInfo;
+
+/**
+ * 枚举按ordinal存为INTEGER，调整枚举常量的顺序会改变已存数据的含义
+ */
+class EnumTypeAdapter implements TypeAdapter {
+
+    @Override
+    public boolean supports(FieldInfo field) {
+        return field.getEnumClass() != null;
+    }
+
+    @Override
+    public String getDbType(FieldInfo field) {
+        return "INTEGER";
+    }
+
+    @Override
+    public String getBindMethod(FieldInfo field) {
+        return "bindLong";
+    }
+
+    @Override
+    public String genBindValue(FieldInfo field, String value) {
+        return value + ".ordinal()";
+    }
+
+    @Override
+    public String genCursorValue(FieldInfo field, String index) {
+        return "cursor.isNull(" + index + ") ? null : " + field.getEnumClass() + ".values()[cursor.getInt(" + index + ")]";
+    }
+
+    @Override
+    public String genSelectionArg(FieldInfo field, String value) {
+        return "String.valueOf(" + value + ".ordinal())";
+    }
+
+    @Override
+    public String getDeclaredType(FieldInfo field) {
+        return field.getEnumClass();
+    }
+}
@@ -0,0 +1,59 @@
+package core.adapter;
+
+import entity.FieldInfo;
+
+/**
+ * 字段类型和数据库列之间的转换，决定建表的列类型、绑定语句和游标读取代码。
+ * 自定义的适配器通过 META-INF/services/core.adapter.TypeAdapter 注册，优先于内置适配器
+ *
+ * <pre>
+ * Date createTime
+ * dbType: INTEGER
+ * bindMethod: bindLong
+ * bindValue: data.getCreateTime().getTime()
+ * cursorValue: cursor.isNull(createTimeIndex) ? null : new java.util.Date(cursor.getLong(createTimeIndex))
+ * </pre>
+ */
+public interface TypeAdapter {
+
+    boolean supports(FieldInfo field);
+
+    /**
+     * 建表语句中的列类型
+     */
+    String getDbType(FieldInfo field);
+
+    /**
+     * SQLiteStatement的绑定方法，如bindLong
+     */
+    String getBindMethod(FieldInfo field);
+
+    /**
+     * 绑定的值，value为不为null的字段值表达式
+     */
+    String genBindValue(FieldInfo field, String value);
+
+    /**
+     * 从名为cursor的游标中读取字段值，index为列索引变量，列为NULL时引用类型应返回null
+     */
+    String genCursorValue(FieldInfo field, String index);
+
+    /**
+     * 查询条件参数字符串，value为字段值表达式。不支持按该字段查询时返回null
+     */
+    String genSelectionArg(FieldInfo field, String value);
+
+    /**
+     * 生成代码中声明字段时使用的类型，不在java.lang中的类型使用完整类名
+     */
+    default String getDeclaredType(FieldInfo field) {
+        return field.getType();
+    }
+
+    /**
+     * 生成的代码是否用到BlobCodec编解码
+     */
+    default boolean usesBlobCodec(FieldInfo field) {
+        return false;
+    }
+}
@@ -0,0 +1,44 @@
+package core.adapter;
+
+import entity.FieldInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * 按字段查找类型适配器，依次尝试自定义适配器和内置适配器，第一个支持的生效。
+ * 嵌套对象等内置适配器不支持的类型直接报错，不再退回Java序列化，需要时自定义适配器
+ */
+public final class TypeAdapters {
+
+    private static final List<TypeAdapter> ADAPTERS = loadAdapters();
+
+    private TypeAdapters() {
+    }
+
+    /**
+     * @throws IllegalArgumentException 没有适配器支持该字段类型
+     */
+    public static TypeAdapter get(FieldInfo field) {
+        for (TypeAdapter adapter : ADAPTERS) {
+            if (adapter.supports(field)) {
+                return adapter;
+            }
+        }
+        throw new IllegalArgumentException("unsupported type " + field.getType() + " of field " + field.getName()
+                + ", implement core.adapter.TypeAdapter and register it in META-INF/services/core.adapter.TypeAdapter");
+    }
+
+    private static List<TypeAdapter> loadAdapters() {
+        ArrayList<TypeAdapter> adapters = new ArrayList<>();
+        for (TypeAdapter adapter : ServiceLoader.load(TypeAdapter.class, TypeAdapters.class.getClassLoader())) {
+            adapters.add(adapter);
+        }
+        adapters.addAll(Arrays.asList(new BasicTypeAdapter(), new EnumTypeAdapter(), new DateTypeAdapter(),
+                new ByteArrayTypeAdapter(), new CollectionTypeAdapter()));
+        return Collections.unmodifiableList(adapters);
+    }
+}
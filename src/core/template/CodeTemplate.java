@@ -0,0 +1,597 @@
+package core.template;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * 预编译的代码模板。模板只解析一次，编译为按顺序执行的输出节点，
+ * 变量路径在编译时就确定了来源(根模型或某一层循环)，渲染时只做取值和追加，
+ * 并且先按数据估算长度，写入一个预先分配好大小的缓冲区
+ *
+ * <pre>
+ * ## 模板注释，不输出
+ * #define bind
+ * stmt.${bind.bindMethod}(${bind.index}, ${bind.bindValue});
+ * #end
+ * public class ${dao} {
+ * #each fields as field
+ * 	private final int ${field.indexVar};
+ * #end
+ * #if key
+ * 	...
+ * #else
+ * 	...
+ * #end
+ * 		#include bind
+ * 			${table}.${field.column}${!loop.last?,}
+ * }
+ * </pre>
+ *
+ * 以#开头的行是指令，不输出：
+ * #each 遍历列表，循环内可以使用loop.index(从1开始)、loop.first、loop.last；
+ * #if 条件为null、false、空字符串和空列表时不成立，前面加!取反；
+ * #define 定义代码片段，#include 在所在位置按该行的缩进展开，片段中的变量按展开位置解析。
+ * 行内的 ${a?text} 在a成立时输出text，${!a?text} 在a不成立时输出text
+ */
+public final class CodeTemplate {
+
+    /**
+     * 估算缓冲区大小时每个变量值的平均长度
+     */
+    private static final int VALUE_SIZE_HINT = 16;
+
+    private final String name;
+    private final Node[] nodes;
+    private final int loopDepth;
+
+    private CodeTemplate(String name, Node[] nodes, int loopDepth) {
+        this.name = name;
+        this.nodes = nodes;
+        this.loopDepth = loopDepth;
+    }
+
+    /**
+     * 编译模板，语法错误时抛出IllegalArgumentException，信息中包含模板名和行号
+     */
+    public static CodeTemplate compile(String name, String source) {
+        return new Parser(name, source).parse();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String render(TemplateModel model) {
+        Frame frame = new Frame(model, loopDepth);
+        int size = 0;
+        for (Node node : nodes) {
+            size += node.estimate(frame);
+        }
+        StringBuilder sb = new StringBuilder(size);
+        for (Node node : nodes) {
+            node.emit(frame, sb);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 渲染时的状态，每层循环占用一个槽位
+     */
+    private static final class Frame {
+        final TemplateModel root;
+        final Object[] items;
+        final int[] indexes;
+        final int[] sizes;
+
+        Frame(TemplateModel root, int depth) {
+            this.root = root;
+            this.items = new Object[depth];
+            this.indexes = new int[depth];
+            this.sizes = new int[depth];
+        }
+    }
+
+    private interface Node {
+        int estimate(Frame frame);
+
+        void emit(Frame frame, StringBuilder sb);
+    }
+
+    private static final class TextNode implements Node {
+        final String text;
+
+        TextNode(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int estimate(Frame frame) {
+            return text.length();
+        }
+
+        @Override
+        public void emit(Frame frame, StringBuilder sb) {
+            sb.append(text);
+        }
+    }
+
+    private static final class ValueNode implements Node {
+        final Ref ref;
+
+        ValueNode(Ref ref) {
+            this.ref = ref;
+        }
+
+        @Override
+        public int estimate(Frame frame) {
+            return VALUE_SIZE_HINT;
+        }
+
+        @Override
+        public void emit(Frame frame, StringBuilder sb) {
+            Object value = ref.resolve(frame);
+            if (value == null) {
+                throw ref.error("is null or undefined");
+            }
+            if (value instanceof CharSequence) {
+                sb.append((CharSequence) value);
+            } else {
+                sb.append(value);
+            }
+        }
+    }
+
+    private static final class ConditionNode implements Node {
+        final Ref ref;
+        final boolean negate;
+        final Node[] then;
+        final Node[] otherwise;
+
+        ConditionNode(Ref ref, boolean negate, Node[] then, Node[] otherwise) {
+            this.ref = ref;
+            this.negate = negate;
+            this.then = then;
+            this.otherwise = otherwise;
+        }
+
+        private Node[] select(Frame frame) {
+            return isTrue(ref.resolve(frame)) != negate ? then : otherwise;
+        }
+
+        @Override
+        public int estimate(Frame frame) {
+            int size = 0;
+            for (Node node : select(frame)) {
+                size += node.estimate(frame);
+            }
+            return size;
+        }
+
+        @Override
+        public void emit(Frame frame, StringBuilder sb) {
+            for (Node node : select(frame)) {
+                node.emit(frame, sb);
+            }
+        }
+
+        private static boolean isTrue(Object value) {
+            if (value == null) {
+                return false;
+            } else if (value instanceof Boolean) {
+                return (Boolean) value;
+            } else if (value instanceof CharSequence) {
+                return ((CharSequence) value).length() > 0;
+            } else if (value instanceof List) {
+                return !((List<?>) value).isEmpty();
+            }
+            return true;
+        }
+    }
+
+    private static final class EachNode implements Node {
+        final Ref ref;
+        final int slot;
+        final Node[] body;
+
+        EachNode(Ref ref, int slot, Node[] body) {
+            this.ref = ref;
+            this.slot = slot;
+            this.body = body;
+        }
+
+        private List<?> getList(Frame frame) {
+            Object value = ref.resolve(frame);
+            if (value == null) {
+                return null;
+            }
+            if (!(value instanceof List)) {
+                throw ref.error("is not a list");
+            }
+            return (List<?>) value;
+        }
+
+        @Override
+        public int estimate(Frame frame) {
+            List<?> list = getList(frame);
+            if (list == null) {
+                return 0;
+            }
+            int size = 0;
+            frame.sizes[slot] = list.size();
+            for (int i = 0; i < list.size(); i++) {
+                frame.items[slot] = list.get(i);
+                frame.indexes[slot] = i;
+                for (Node node : body) {
+                    size += node.estimate(frame);
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public void emit(Frame frame, StringBuilder sb) {
+            List<?> list = getList(frame);
+            if (list == null) {
+                return;
+            }
+            frame.sizes[slot] = list.size();
+            for (int i = 0; i < list.size(); i++) {
+                frame.items[slot] = list.get(i);
+                frame.indexes[slot] = i;
+                for (Node node : body) {
+                    node.emit(frame, sb);
+                }
+            }
+        }
+    }
+
+    /**
+     * 编译后的变量路径，来源在编译时确定
+     */
+    private static final class Ref {
+        static final int ROOT = 0;
+        static final int ITEM = 1;
+        static final int LOOP_INDEX = 2;
+        static final int LOOP_FIRST = 3;
+        static final int LOOP_LAST = 4;
+
+        final String location;
+        final String path;
+        final int kind;
+        final int slot;
+        final String[] keys;
+
+        Ref(String location, String path, int kind, int slot, String[] keys) {
+            this.location = location;
+            this.path = path;
+            this.kind = kind;
+            this.slot = slot;
+            this.keys = keys;
+        }
+
+        Object resolve(Frame frame) {
+            Object value;
+            switch (kind) {
+                case LOOP_INDEX:
+                    return frame.indexes[slot] + 1;
+                case LOOP_FIRST:
+                    return frame.indexes[slot] == 0;
+                case LOOP_LAST:
+                    return frame.indexes[slot] == frame.sizes[slot] - 1;
+                case ITEM:
+                    value = frame.items[slot];
+                    break;
+                default:
+                    value = frame.root;
+                    break;
+            }
+            for (String key : keys) {
+                if (value == null) {
+                    return null;
+                }
+                if (!(value instanceof TemplateModel)) {
+                    throw error("can't read '" + key + "' from " + value.getClass().getSimpleName());
+                }
+                value = ((TemplateModel) value).get(key);
+            }
+            return value;
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(location + ": ${" + path + "} " + message);
+        }
+    }
+
+    /**
+     * 模板中的一行，lineNumber用于错误信息
+     */
+    private static final class Line {
+        final int lineNumber;
+        final String text;
+
+        Line(int lineNumber, String text) {
+            this.lineNumber = lineNumber;
+            this.text = text;
+        }
+
+        String getIndent() {
+            int i = 0;
+            while (i < text.length() && (text.charAt(i) == '\t' || text.charAt(i) == ' ')) {
+                i++;
+            }
+            return text.substring(0, i);
+        }
+
+        /**
+         * 指令行返回#后面的内容，普通代码行返回null
+         */
+        String getDirective() {
+            String trimmed = text.trim();
+            return trimmed.startsWith("#") ? trimmed.substring(1).trim() : null;
+        }
+    }
+
+    private static final class Parser {
+        private final String name;
+        private final ArrayList<Line> lines = new ArrayList<>();
+        private final HashMap<String, List<Line>> defines = new HashMap<>();
+        private final ArrayList<String> loopVars = new ArrayList<>();
+        private final HashSet<String> including = new HashSet<>();
+        private int maxLoopDepth;
+
+        private List<Line> source;
+        private int pos;
+
+        Parser(String name, String text) {
+            this.name = name;
+            String[] rows = text.split("\n", -1);
+            int count = text.endsWith("\n") ? rows.length - 1 : rows.length;
+            for (int i = 0; i < count; i++) {
+                String row = rows[i];
+                if (row.endsWith("\r")) {
+                    row = row.substring(0, row.length() - 1);
+                }
+                lines.add(new Line(i + 1, row));
+            }
+        }
+
+        CodeTemplate parse() {
+            List<Line> body = extractDefines();
+            ArrayList<Node> nodes = compile(body, "");
+            return new CodeTemplate(name, nodes.toArray(new Node[0]), maxLoopDepth);
+        }
+
+        /**
+         * 取出顶层的#define片段，返回其余的行
+         */
+        private List<Line> extractDefines() {
+            ArrayList<Line> body = new ArrayList<>();
+            for (int i = 0; i < lines.size(); i++) {
+                Line line = lines.get(i);
+                String directive = line.getDirective();
+                if (directive == null || !directive.startsWith("define ")) {
+                    body.add(line);
+                    continue;
+                }
+                String defineName = directive.substring("define ".length()).trim();
+                ArrayList<Line> defineLines = new ArrayList<>();
+                int depth = 1;
+                for (i++; i < lines.size(); i++) {
+                    String inner = lines.get(i).getDirective();
+                    if (inner != null && (inner.startsWith("if ") || inner.startsWith("each ") || inner.startsWith("define "))) {
+                        depth++;
+                    } else if (inner != null && inner.equals("end")) {
+                        depth--;
+                    }
+                    if (depth == 0) {
+                        break;
+                    }
+                    defineLines.add(lines.get(i));
+                }
+                if (depth != 0) {
+                    throw error(line, "#define " + defineName + " is not closed");
+                }
+                defines.put(defineName, defineLines);
+            }
+            return body;
+        }
+
+        /**
+         * 编译一段完整的行，不能有多余的#else或#end
+         */
+        private ArrayList<Node> compile(List<Line> block, String indent) {
+            List<Line> savedSource = source;
+            int savedPos = pos;
+            source = block;
+            pos = 0;
+            ArrayList<Node> nodes = compileUntilEnd(indent);
+            if (pos < source.size()) {
+                throw error(source.get(pos), "unexpected #" + source.get(pos).getDirective());
+            }
+            source = savedSource;
+            pos = savedPos;
+            return nodes;
+        }
+
+        /**
+         * 编译到#else、#end或者结束，不消耗终止行
+         */
+        private ArrayList<Node> compileUntilEnd(String indent) {
+            ArrayList<Node> nodes = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+            while (pos < source.size()) {
+                Line line = source.get(pos);
+                String directive = line.getDirective();
+                if (directive == null) {
+                    pos++;
+                    compileText(line, indent, nodes, text);
+                    continue;
+                }
+                if (directive.startsWith("#")) {
+                    pos++;
+                    continue;
+                }
+                if (directive.equals("else") || directive.equals("end")) {
+                    break;
+                }
+                pos++;
+                flushText(nodes, text);
+                if (directive.startsWith("each ")) {
+                    nodes.add(compileEach(line, directive.substring("each ".length()).trim(), indent));
+                } else if (directive.startsWith("if ")) {
+                    nodes.add(compileIf(line, directive.substring("if ".length()).trim(), indent));
+                } else if (directive.startsWith("include ")) {
+                    String defineName = directive.substring("include ".length()).trim();
+                    List<Line> defineLines = defines.get(defineName);
+                    if (defineLines == null) {
+                        throw error(line, "#define " + defineName + " not found");
+                    }
+                    if (!including.add(defineName)) {
+                        throw error(line, "#include " + defineName + " is recursive");
+                    }
+                    nodes.addAll(compile(defineLines, indent + line.getIndent()));
+                    including.remove(defineName);
+                } else if (directive.startsWith("define ")) {
+                    throw error(line, "#define must be at top level");
+                } else {
+                    throw error(line, "unknown directive #" + directive);
+                }
+            }
+            flushText(nodes, text);
+            return nodes;
+        }
+
+        private Node compileEach(Line line, String expression, String indent) {
+            String[] parts = expression.split("\\s+");
+            if (parts.length != 3 || !parts[1].equals("as") || !isIdentifier(parts[2]) || parts[2].equals("loop")) {
+                throw error(line, "expected #each <list> as <name>");
+            }
+            Ref ref = compileRef(line, parts[0]);
+            int slot = loopVars.size();
+            loopVars.add(parts[2]);
+            maxLoopDepth = Math.max(maxLoopDepth, loopVars.size());
+            ArrayList<Node> body = compileUntilEnd(indent);
+            loopVars.remove(slot);
+            expectEnd(line, "#each");
+            return new EachNode(ref, slot, body.toArray(new Node[0]));
+        }
+
+        private Node compileIf(Line line, String expression, String indent) {
+            boolean negate = expression.startsWith("!");
+            Ref ref = compileRef(line, negate ? expression.substring(1).trim() : expression);
+            ArrayList<Node> then = compileUntilEnd(indent);
+            ArrayList<Node> otherwise = new ArrayList<>();
+            if (pos < source.size() && "else".equals(source.get(pos).getDirective())) {
+                pos++;
+                otherwise = compileUntilEnd(indent);
+            }
+            expectEnd(line, "#if");
+            return new ConditionNode(ref, negate, then.toArray(new Node[0]), otherwise.toArray(new Node[0]));
+        }
+
+        private void expectEnd(Line line, String directive) {
+            if (pos >= source.size() || !"end".equals(source.get(pos).getDirective())) {
+                throw error(line, directive + " is not closed");
+            }
+            pos++;
+        }
+
+        /**
+         * 编译代码行，行内变量拆分为单独的节点，相邻的文本合并
+         */
+        private void compileText(Line line, String indent, ArrayList<Node> nodes, StringBuilder text) {
+            String row = line.text;
+            if (!row.isEmpty()) {
+                text.append(indent);
+            }
+            int start = 0;
+            while (true) {
+                int open = row.indexOf("${", start);
+                if (open < 0) {
+                    break;
+                }
+                int close = row.indexOf('}', open + 2);
+                if (close < 0) {
+                    throw error(line, "'${' is not closed");
+                }
+                text.append(row, start, open);
+                flushText(nodes, text);
+                nodes.add(compileExpression(line, row.substring(open + 2, close)));
+                start = close + 1;
+            }
+            text.append(row, start, row.length()).append('\n');
+        }
+
+        private Node compileExpression(Line line, String expression) {
+            int question = expression.indexOf('?');
+            if (question < 0) {
+                return new ValueNode(compileRef(line, expression.trim()));
+            }
+            String condition = expression.substring(0, question).trim();
+            boolean negate = condition.startsWith("!");
+            Ref ref = compileRef(line, negate ? condition.substring(1).trim() : condition);
+            Node[] then = {new TextNode(expression.substring(question + 1))};
+            return new ConditionNode(ref, negate, then, new Node[0]);
+        }
+
+        private Ref compileRef(Line line, String path) {
+            String[] segments = path.split("\\.", -1);
+            for (String segment : segments) {
+                if (!isIdentifier(segment)) {
+                    throw error(line, "invalid variable '" + path + "'");
+                }
+            }
+            String location = name + ":" + line.lineNumber;
+            if (segments[0].equals("loop")) {
+                if (loopVars.isEmpty()) {
+                    throw error(line, "'" + path + "' used outside #each");
+                }
+                int slot = loopVars.size() - 1;
+                String key = segments.length == 2 ? segments[1] : "";
+                switch (key) {
+                    case "index":
+                        return new Ref(location, path, Ref.LOOP_INDEX, slot, new String[0]);
+                    case "first":
+                        return new Ref(location, path, Ref.LOOP_FIRST, slot, new String[0]);
+                    case "last":
+                        return new Ref(location, path, Ref.LOOP_LAST, slot, new String[0]);
+                    default:
+                        throw error(line, "expected loop.index, loop.first or loop.last");
+                }
+            }
+            for (int slot = loopVars.size() - 1; slot >= 0; slot--) {
+                if (loopVars.get(slot).equals(segments[0])) {
+                    String[] keys = new String[segments.length - 1];
+                    System.arraycopy(segments, 1, keys, 0, keys.length);
+                    return new Ref(location, path, Ref.ITEM, slot, keys);
+                }
+            }
+            return new Ref(location, path, Ref.ROOT, -1, segments);
+        }
+
+        private static void flushText(ArrayList<Node> nodes, StringBuilder text) {
+            if (text.length() > 0) {
+                nodes.add(new TextNode(text.toString()));
+                text.setLength(0);
+            }
+        }
+
+        private static boolean isIdentifier(String text) {
+            if (text.isEmpty() || !Character.isJavaIdentifierStart(text.charAt(0))) {
+                return false;
+            }
+            for (int i = 1; i < text.length(); i++) {
+                if (!Character.isJavaIdentifierPart(text.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private IllegalArgumentException error(Line line, String message) {
+            return new IllegalArgumentException(name + ":" + line.lineNumber + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package core.template;
+
+/**
+ * 模板变量的取值接口，按名称返回String、Boolean、List或下一级TemplateModel，
+ * 不存在的变量返回null
+ */
+public interface TemplateModel {
+
+    Object get(String key);
+}
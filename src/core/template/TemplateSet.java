@@ -0,0 +1,104 @@
+package core.template;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 代码模板集合。内置模板在插件资源的templates目录下，
+ * 自定义目录中的同名文件(如dao.tpl)会覆盖内置模板，没有的使用内置模板。
+ * 编译后的模板会缓存，自定义模板文件修改后重新编译
+ */
+public class TemplateSet {
+
+    public static final String DAO = "dao";
+    public static final String HELPER = "helper";
+    public static final String CONTRACT = "contract";
+    public static final String COLUMNS = "columns";
+    public static final String CODEC = "codec";
+
+    public static final String TEMPLATE_SUFFIX = ".tpl";
+    private static final String RESOURCE_DIR = "/templates/";
+
+    private static final TemplateSet DEFAULT = new TemplateSet(null);
+    private static final ConcurrentHashMap<Path, TemplateSet> CUSTOM_SETS = new ConcurrentHashMap<>();
+
+    private final Path dir;
+    private final ConcurrentHashMap<String, Entry> templates = new ConcurrentHashMap<>();
+
+    private TemplateSet(Path dir) {
+        this.dir = dir;
+    }
+
+    public static TemplateSet getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 使用目录中的自定义模板，目录为null时使用内置模板
+     */
+    public static TemplateSet forDirectory(Path dir) {
+        if (dir == null) {
+            return DEFAULT;
+        }
+        return CUSTOM_SETS.computeIfAbsent(dir.toAbsolutePath().normalize(), TemplateSet::new);
+    }
+
+    public CodeTemplate get(String name) {
+        if (dir != null) {
+            Path file = dir.resolve(name + TEMPLATE_SUFFIX);
+            if (Files.isRegularFile(file)) {
+                return getCustom(name, file);
+            }
+        }
+        return DEFAULT.templates.computeIfAbsent(name,
+                key -> new Entry(CodeTemplate.compile(key + TEMPLATE_SUFFIX, readResource(key)), 0)).template;
+    }
+
+    private CodeTemplate getCustom(String name, Path file) {
+        try {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            Entry entry = templates.get(name);
+            if (entry == null || entry.modified != modified) {
+                String source = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+                entry = new Entry(CodeTemplate.compile(file.toString(), source), modified);
+                templates.put(name, entry);
+            }
+            return entry.template;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String readResource(String name) {
+        try (InputStream in = TemplateSet.class.getResourceAsStream(RESOURCE_DIR + name + TEMPLATE_SUFFIX)) {
+            if (in == null) {
+                throw new IllegalArgumentException("template not found: " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class Entry {
+        final CodeTemplate template;
+        final long modified;
+
+        Entry(CodeTemplate template, long modified) {
+            this.template = template;
+            this.modified = modified;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package entity;
+
+public class DatabaseOptions {
+
+    /**
+     * 为0时不修改，使用SQLite默认值
+     */
+    public static final int DEFAULT = 0;
+
+    private boolean walEnabled = true;
+    private String synchronous = "NORMAL";
+    private int pageSize = DEFAULT;
+    private int cacheSize = DEFAULT;
+    private String tempStore = "DEFAULT";
+    private long mmapSize = DEFAULT;
+
+    public boolean isWalEnabled() {
+        return walEnabled;
+    }
+
+    public void setWalEnabled(boolean walEnabled) {
+        this.walEnabled = walEnabled;
+    }
+
+    public String getSynchronous() {
+        return synchronous;
+    }
+
+    public void setSynchronous(String synchronous) {
+        this.synchronous = synchronous;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public String getTempStore() {
+        return tempStore;
+    }
+
+    public void setTempStore(String tempStore) {
+        this.tempStore = tempStore;
+    }
+
+    public long getMmapSize() {
+        return mmapSize;
+    }
+
+    public void setMmapSize(long mmapSize) {
+        this.mmapSize = mmapSize;
+    }
+}
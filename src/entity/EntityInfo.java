@@ -0,0 +1,46 @@
+package entity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 数据类描述，由PSI或源码解析一次生成，之后所有代码生成只依赖此模型，可以在IDE外并行使用
+ */
+public final class EntityInfo {
+
+    private final String name;
+    private final String packageName;
+    private final List<FieldInfo> fields;
+
+    public EntityInfo(String name, String packageName, List<FieldInfo> fields) {
+        this.name = name;
+        this.packageName = packageName;
+        this.fields = Collections.unmodifiableList(new ArrayList<>(fields));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public String getQualifiedName() {
+        return packageName == null || packageName.isEmpty() ? name : packageName + "." + name;
+    }
+
+    public List<FieldInfo> getFields() {
+        return fields;
+    }
+
+    public FieldInfo findField(String name) {
+        for (FieldInfo field : fields) {
+            if (field.getName().equals(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,92 @@
+package entity;
+
+import java.util.Objects;
+
+/**
+ * 数据类字段描述，不依赖PSI，生成代码时只需要字段名和类型，枚举字段另外记录枚举类名，
+ * 引用类型另外记录完整类名
+ */
+public final class FieldInfo {
+
+    private final String name;
+    /**
+     * 类型的源码文本，如 int、Long、String
+     */
+    private final String type;
+    /**
+     * 自定义的数据库列类型，如 TEXT，为null时按字段类型推断。
+     * 只影响建表语句中的列类型，绑定和读取仍按字段类型
+     */
+    private final String columnType;
+    /**
+     * 枚举类型的完整类名，如 com.example.bean.User.Status，不是枚举时为null
+     */
+    private final String enumClass;
+    /**
+     * 引用类型的完整类名，如 com.example.bean.Address，基础类型或无法解析时为null
+     */
+    private final String qualifiedType;
+
+    public FieldInfo(String name, String type) {
+        this(name, type, null, null, null);
+    }
+
+    public FieldInfo(String name, String type, String columnType) {
+        this(name, type, columnType, null, null);
+    }
+
+    public FieldInfo(String name, String type, String columnType, String enumClass) {
+        this(name, type, columnType, enumClass, null);
+    }
+
+    public FieldInfo(String name, String type, String columnType, String enumClass, String qualifiedType) {
+        this.name = name;
+        this.type = type;
+        this.columnType = columnType;
+        this.enumClass = enumClass;
+        this.qualifiedType = qualifiedType;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getColumnType() {
+        return columnType;
+    }
+
+    public String getEnumClass() {
+        return enumClass;
+    }
+
+    public String getQualifiedType() {
+        return qualifiedType;
+    }
+
+    public FieldInfo withColumnType(String columnType) {
+        return new FieldInfo(name, type, columnType, enumClass, qualifiedType);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FieldInfo)) return false;
+        FieldInfo that = (FieldInfo) o;
+        return name.equals(that.name) && type.equals(that.type) && Objects.equals(columnType, that.columnType)
+                && Objects.equals(enumClass, that.enumClass) && Objects.equals(qualifiedType, that.qualifiedType);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, type, columnType, enumClass, qualifiedType);
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + name;
+    }
+}
@@ -1,27 +1,92 @@
 package entity;
 
-import com.intellij.psi.PsiField;
-
 import java.util.ArrayList;
 
 public class GenerateInfo {
 
-    private ArrayList<PsiField> fields;
-    private PsiField priKeyFields;
+    /**
+     * upsert时主键冲突删除旧行后插入，所有SQLite版本都支持
+     */
+    public static final String CONFLICT_REPLACE = "REPLACE";
+    /**
+     * upsert时主键冲突只更新已有行，需要SQLite 3.24，即Android 11及以上
+     */
+    public static final String CONFLICT_UPDATE = "UPDATE";
+
+    private ArrayList<FieldInfo> fields;
+    private FieldInfo priKeyFields;
+    private ArrayList<ProjectionInfo> projections = new ArrayList<>();
+    private ArrayList<IndexInfo> indexes = new ArrayList<>();
+    private DatabaseOptions databaseOptions = new DatabaseOptions();
+    /**
+     * Dao中按主键缓存的最大对象数，0为不缓存，只在有自定义主键时生效
+     */
+    private int cacheSize;
+    private String conflictStrategy = CONFLICT_REPLACE;
+
+    /**
+     * 不经过选择界面时的默认配置：使用全部字段，主键为null时使用默认的_ID主键
+     */
+    public static GenerateInfo ofAllFields(EntityInfo entity, FieldInfo priKeyField) {
+        GenerateInfo info = new GenerateInfo();
+        info.setFields(new ArrayList<>(entity.getFields()));
+        info.setPriKeyFields(priKeyField);
+        return info;
+    }
 
-    public ArrayList<PsiField> getFields() {
+    public ArrayList<FieldInfo> getFields() {
         return fields;
     }
 
-    public void setFields(ArrayList<PsiField> fields) {
+    public void setFields(ArrayList<FieldInfo> fields) {
         this.fields = fields;
     }
 
-    public PsiField getPriKeyFields() {
+    public FieldInfo getPriKeyFields() {
         return priKeyFields;
     }
 
-    public void setPriKeyFields(PsiField priKeyFields) {
+    public void setPriKeyFields(FieldInfo priKeyFields) {
         this.priKeyFields = priKeyFields;
     }
+
+    public ArrayList<ProjectionInfo> getProjections() {
+        return projections;
+    }
+
+    public void setProjections(ArrayList<ProjectionInfo> projections) {
+        this.projections = projections;
+    }
+
+    public ArrayList<IndexInfo> getIndexes() {
+        return indexes;
+    }
+
+    public void setIndexes(ArrayList<IndexInfo> indexes) {
+        this.indexes = indexes;
+    }
+
+    public DatabaseOptions getDatabaseOptions() {
+        return databaseOptions;
+    }
+
+    public void setDatabaseOptions(DatabaseOptions databaseOptions) {
+        this.databaseOptions = databaseOptions;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public String getConflictStrategy() {
+        return conflictStrategy;
+    }
+
+    public void setConflictStrategy(String conflictStrategy) {
+        this.conflictStrategy = conflictStrategy;
+    }
 }
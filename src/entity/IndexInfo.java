@@ -0,0 +1,30 @@
+package entity;
+
+import java.util.ArrayList;
+
+public class IndexInfo {
+
+    private ArrayList<FieldInfo> fields;
+    private boolean unique;
+
+    public IndexInfo(ArrayList<FieldInfo> fields, boolean unique) {
+        this.fields = fields;
+        this.unique = unique;
+    }
+
+    public ArrayList<FieldInfo> getFields() {
+        return fields;
+    }
+
+    public void setFields(ArrayList<FieldInfo> fields) {
+        this.fields = fields;
+    }
+
+    public boolean isUnique() {
+        return unique;
+    }
+
+    public void setUnique(boolean unique) {
+        this.unique = unique;
+    }
+}
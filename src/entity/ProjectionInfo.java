@@ -0,0 +1,30 @@
+package entity;
+
+import java.util.ArrayList;
+
+public class ProjectionInfo {
+
+    private String name;
+    private ArrayList<FieldInfo> fields;
+
+    public ProjectionInfo(String name, ArrayList<FieldInfo> fields) {
+        this.name = name;
+        this.fields = fields;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public ArrayList<FieldInfo> getFields() {
+        return fields;
+    }
+
+    public void setFields(ArrayList<FieldInfo> fields) {
+        this.fields = fields;
+    }
+}
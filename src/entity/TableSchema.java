@@ -0,0 +1,55 @@
+package entity;
+
+import java.util.LinkedHashMap;
+
+/**
+ * 生成时的表结构记录，用于再次生成时对比差异，生成升级迁移代码
+ */
+public class TableSchema {
+
+    private String tableName;
+    /**
+     * 列名 -> 列定义，如 "INTEGER PRIMARY KEY"
+     */
+    private LinkedHashMap<String, String> columns = new LinkedHashMap<>();
+    /**
+     * 表选项，如 "WITHOUT ROWID"，没有时为空字符串
+     */
+    private String tableOption = "";
+    /**
+     * 索引名 -> 创建索引的SQL
+     */
+    private LinkedHashMap<String, String> indexes = new LinkedHashMap<>();
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public LinkedHashMap<String, String> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(LinkedHashMap<String, String> columns) {
+        this.columns = columns;
+    }
+
+    public String getTableOption() {
+        return tableOption;
+    }
+
+    public void setTableOption(String tableOption) {
+        this.tableOption = tableOption;
+    }
+
+    public LinkedHashMap<String, String> getIndexes() {
+        return indexes;
+    }
+
+    public void setIndexes(LinkedHashMap<String, String> indexes) {
+        this.indexes = indexes;
+    }
+}
@@ -0,0 +1,59 @@
+package processor;
+
+import core.CodeFactory;
+import entity.EntityInfo;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * 为每个 &#64;DatabaseEntity 数据类生成Dao，每个Dao只依赖自己的数据类，
+ * 注册为Gradle的isolating处理器，修改一个数据类只会重新生成它自己的Dao
+ */
+public class DaoProcessor extends AbstractProcessor {
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(DatabaseEntity.class.getCanonicalName());
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return ProcessorUtils.OPTIONS;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        String dbPackage = ProcessorUtils.getDbPackage(processingEnv);
+        for (Element element : roundEnv.getElementsAnnotatedWith(DatabaseEntity.class)) {
+            if (dbPackage == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "missing annotation processor option " + ProcessorUtils.OPTION_PACKAGE, element);
+                return false;
+            }
+            TypeElement typeElement = (TypeElement) element;
+            EntityInfo entity = ProcessorUtils.getEntityInfo(typeElement);
+            try {
+                String code = CodeFactory.genDaoCode(entity, ProcessorUtils.getGenerateInfo(typeElement, entity), dbPackage,
+                        ProcessorUtils.getTemplateSet(processingEnv));
+                ProcessorUtils.writeSource(processingEnv.getFiler(), dbPackage + "." + entity.getName() + "Dao", code, typeElement);
+            } catch (IOException | IllegalArgumentException e) {
+                // 模板语法错误也作为编译错误报告
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.toString(), element);
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,47 @@
+package processor;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记需要在编译时生成数据库代码的数据类，
+ * 生成的代码包名通过注解处理器参数 dbgen.package 指定
+ *
+ * <pre>
+ * &#64;DatabaseEntity(primaryKey = "id", ignore = {"cache"}, cacheSize = 64)
+ * public class User {
+ *     ...
+ * }
+ * </pre>
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface DatabaseEntity {
+
+    /**
+     * 主键字段名，为空时使用默认的_ID主键
+     */
+    String primaryKey() default "";
+
+    /**
+     * 不生成列的字段名
+     */
+    String[] ignore() default {};
+
+    /**
+     * 单列索引的字段名
+     */
+    String[] indexes() default {};
+
+    /**
+     * Dao中按主键缓存的最大对象数，0为不缓存，需要指定主键
+     */
+    int cacheSize() default 0;
+
+    /**
+     * upsert主键冲突时的处理方式，REPLACE或UPDATE，UPDATE需要Android 11及以上
+     */
+    String conflictStrategy() default "REPLACE";
+}
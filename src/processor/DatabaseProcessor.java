@@ -0,0 +1,83 @@
+package processor;
+
+import core.CodeFactory;
+import core.template.TemplateSet;
+import entity.EntityInfo;
+import entity.GenerateInfo;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Set;
+
+/**
+ * 生成汇总所有 &#64;DatabaseEntity 数据类的DataContract和DatabaseTables，以及字段用到时的BlobCodec，
+ * 这两个文件依赖全部数据类，注册为Gradle的aggregating处理器。
+ * 内容只是常量和建表语句，生成很快，内容不变时不会引起Dao重新编译
+ */
+public class DatabaseProcessor extends AbstractProcessor {
+
+    private boolean generated;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(DatabaseEntity.class.getCanonicalName());
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return ProcessorUtils.OPTIONS;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        String dbPackage = ProcessorUtils.getDbPackage(processingEnv);
+        ArrayList<TypeElement> elements = new ArrayList<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(DatabaseEntity.class)) {
+            elements.add((TypeElement) element);
+        }
+        // 缺少包名参数时由DaoProcessor报错
+        if (generated || elements.isEmpty() || dbPackage == null) {
+            return false;
+        }
+        generated = true;
+
+        elements.sort(Comparator.comparing(element -> element.getSimpleName().toString()));
+        ArrayList<EntityInfo> entities = new ArrayList<>();
+        ArrayList<GenerateInfo> infos = new ArrayList<>();
+        for (TypeElement element : elements) {
+            EntityInfo entity = ProcessorUtils.getEntityInfo(element);
+            entities.add(entity);
+            infos.add(ProcessorUtils.getGenerateInfo(element, entity));
+        }
+
+        TypeElement[] originatingElements = elements.toArray(new TypeElement[0]);
+        TemplateSet templates = ProcessorUtils.getTemplateSet(processingEnv);
+        try {
+            ProcessorUtils.writeSource(processingEnv.getFiler(), dbPackage + ".DataContract",
+                    CodeFactory.genDataContractCode(dbPackage, entities, infos, templates),
+                    originatingElements);
+            if (CodeFactory.usesBlobCodec(infos)) {
+                ProcessorUtils.writeSource(processingEnv.getFiler(), dbPackage + ".BlobCodec",
+                        CodeFactory.genBlobCodecCode(dbPackage, templates), originatingElements);
+            }
+            ProcessorUtils.writeSource(processingEnv.getFiler(), dbPackage + ".DatabaseTables",
+                    CodeFactory.genDatabaseTablesCode(dbPackage, entities, infos), originatingElements);
+        } catch (IOException | IllegalArgumentException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.toString());
+        }
+        return false;
+    }
+}
@@ -0,0 +1,118 @@
+package processor;
+
+import core.template.TemplateSet;
+import entity.EntityInfo;
+import entity.FieldInfo;
+import entity.GenerateInfo;
+import entity.IndexInfo;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class ProcessorUtils {
+
+    public static final String OPTION_PACKAGE = "dbgen.package";
+    /**
+     * 自定义模板目录，可选
+     */
+    public static final String OPTION_TEMPLATES = "dbgen.templates";
+    public static final Set<String> OPTIONS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList(OPTION_PACKAGE, OPTION_TEMPLATES)));
+
+    /**
+     * 将注解处理器中的数据类转为描述模型，和插件中一样只取本类声明的非static字段
+     */
+    public static EntityInfo getEntityInfo(TypeElement element) {
+        List<String> ignore = Arrays.asList(element.getAnnotation(DatabaseEntity.class).ignore());
+        ArrayList<FieldInfo> fields = new ArrayList<>();
+        for (Element member : element.getEnclosedElements()) {
+            if (member.getKind() != ElementKind.FIELD || member.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            String name = member.getSimpleName().toString();
+            if (!ignore.contains(name)) {
+                TypeMirror type = member.asType();
+                fields.add(new FieldInfo(name, getTypeText(type), null, getEnumClass(type),
+                        type.getKind() == TypeKind.DECLARED ? type.toString() : null));
+            }
+        }
+        String packageName = getPackage(element).getQualifiedName().toString();
+        return new EntityInfo(element.getSimpleName().toString(), packageName, fields);
+    }
+
+    public static GenerateInfo getGenerateInfo(TypeElement element, EntityInfo entity) {
+        DatabaseEntity annotation = element.getAnnotation(DatabaseEntity.class);
+        GenerateInfo info = GenerateInfo.ofAllFields(entity,
+                annotation.primaryKey().isEmpty() ? null : entity.findField(annotation.primaryKey()));
+        info.setCacheSize(annotation.cacheSize());
+        info.setConflictStrategy(annotation.conflictStrategy());
+        for (String name : annotation.indexes()) {
+            FieldInfo field = entity.findField(name);
+            if (field != null && !field.equals(info.getPriKeyFields())) {
+                ArrayList<FieldInfo> indexFields = new ArrayList<>();
+                indexFields.add(field);
+                info.getIndexes().add(new IndexInfo(indexFields, false));
+            }
+        }
+        return info;
+    }
+
+    /**
+     * 生成代码中使用的类型文本，和IDE中的PresentableText保持一致，即不带包名
+     */
+    private static String getTypeText(TypeMirror type) {
+        if (type.getKind() == TypeKind.DECLARED && ((DeclaredType) type).getTypeArguments().isEmpty()) {
+            return ((DeclaredType) type).asElement().getSimpleName().toString();
+        }
+        return type.toString();
+    }
+
+    private static String getEnumClass(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        Element element = ((DeclaredType) type).asElement();
+        return element.getKind() == ElementKind.ENUM ? ((TypeElement) element).getQualifiedName().toString() : null;
+    }
+
+    private static PackageElement getPackage(Element element) {
+        while (!(element instanceof PackageElement)) {
+            element = element.getEnclosingElement();
+        }
+        return (PackageElement) element;
+    }
+
+    public static String getDbPackage(ProcessingEnvironment env) {
+        return env.getOptions().get(OPTION_PACKAGE);
+    }
+
+    public static TemplateSet getTemplateSet(ProcessingEnvironment env) {
+        String dir = env.getOptions().get(OPTION_TEMPLATES);
+        return TemplateSet.forDirectory(dir == null ? null : Paths.get(dir));
+    }
+
+    public static void writeSource(Filer filer, String qualifiedName, String code, Element... originatingElements) throws IOException {
+        JavaFileObject file = filer.createSourceFile(qualifiedName, originatingElements);
+        try (Writer writer = file.openWriter()) {
+            writer.write(code);
+        }
+    }
+}
@@ -1,47 +1,57 @@
 package ui;
 
-import com.intellij.psi.PsiClass;
-import com.intellij.psi.PsiField;
+import core.adapter.TypeAdapters;
+import entity.DatabaseOptions;
+import entity.EntityInfo;
+import entity.FieldInfo;
+import entity.GenerateInfo;
+import entity.IndexInfo;
+import entity.ProjectionInfo;
 import utils.UiUtils;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.TableCellRenderer;
+import javax.swing.table.TableColumn;
+import javax.swing.table.TableColumnModel;
+import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class ColumnDialog extends JDialog {
 
     public static final int ITEM_HEIGHT = 25;
 
-    private PsiClass clazz;
+    private EntityInfo entity;
 
     private JPanel contentPane;
     private JButton buttonOK;
     private JButton buttonCancel;
     private JPanel header;
-    private JPanel list;
+    private JTable table;
+    private FieldTableModel tableModel;
     private JPanel footer;
     private JCheckBox cbAll;
 
-    public ColumnDialog(PsiClass clazz) {
+    public ColumnDialog(EntityInfo entity) {
         UiUtils.centerDialog(this, 600, 400);
         setLocationRelativeTo(null);
         setContentPane(contentPane);
         setModal(true);
         getRootPane().setDefaultButton(buttonOK);
 
-        this.clazz = clazz;
+        this.entity = entity;
 
-        list.setLayout(new BoxLayout(list, BoxLayout.Y_AXIS));
+        // list
+        createTable();
 
         // header
         createHeader();
 
-        // list
-        createItem(-1); // default _ID
-        for (int i = 0; i < clazz.getFields().length; i++) {
-            createItem(i);
-        }
-
         // footer
         createFooter();
 
@@ -49,74 +59,140 @@ public class ColumnDialog extends JDialog {
         buttonCancel.addActionListener(e -> dispose());
     }
 
+    /**
+     * 字段很多时逐行创建组件打开很慢，改用表格只绘制可见的行
+     */
+    private void createTable() {
+        tableModel = new FieldTableModel(entity.getFields());
+        table.setModel(tableModel);
+        table.setRowHeight(ITEM_HEIGHT);
+        table.setFillsViewportHeight(true);
+        table.getTableHeader().setReorderingAllowed(false);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+
+        TableColumnModel columns = table.getColumnModel();
+        setColumnWidth(columns.getColumn(FieldTableModel.COLUMN_USE), 40);
+        setColumnWidth(columns.getColumn(FieldTableModel.COLUMN_DB_TYPE), 90);
+        setColumnWidth(columns.getColumn(FieldTableModel.COLUMN_INDEX), 50);
+        setColumnWidth(columns.getColumn(FieldTableModel.COLUMN_UNIQUE), 50);
+        setColumnWidth(columns.getColumn(FieldTableModel.COLUMN_PRIMARY_KEY), 80);
+
+        // 自定义列类型只影响建表语句，绑定和读取仍按字段类型
+        columns.getColumn(FieldTableModel.COLUMN_DB_TYPE).setCellEditor(
+                new DefaultCellEditor(new JComboBox<>(FieldTableModel.DB_TYPES)));
+
+        // 主键单选，显示为单选按钮
+        TableColumn priKeyColumn = columns.getColumn(FieldTableModel.COLUMN_PRIMARY_KEY);
+        priKeyColumn.setCellRenderer(new RadioButtonRenderer());
+        JCheckBox priKeyEditor = new JCheckBox();
+        priKeyEditor.setHorizontalAlignment(SwingConstants.CENTER);
+        priKeyEditor.setIcon(UIManager.getIcon("RadioButton.icon"));
+        priKeyColumn.setCellEditor(new DefaultCellEditor(priKeyEditor));
+
+        // 过滤时保持字段声明顺序，不支持点击表头排序
+        sorter = new TableRowSorter<>(tableModel);
+        for (int i = 0; i < tableModel.getColumnCount(); i++) {
+            sorter.setSortable(i, false);
+        }
+        table.setRowSorter(sorter);
+    }
+
+    private static void setColumnWidth(TableColumn column, int width) {
+        column.setPreferredWidth(width);
+        column.setMaxWidth(width);
+    }
+
+    private TableRowSorter<FieldTableModel> sorter;
+
+    /**
+     * 按字段名过滤，默认_ID一直显示
+     */
     private void createHeader() {
         header.setLayout(new BoxLayout(header, BoxLayout.X_AXIS));
 
         header.add(Box.createHorizontalStrut(10));
 
-        JLabel label1 = new JLabel("use");
-        label1.setPreferredSize(new Dimension(40, ITEM_HEIGHT));
-        header.add(label1);
+        JLabel label = new JLabel("filter");
+        header.add(label);
+
+        header.add(Box.createHorizontalStrut(10));
+
+        JTextField filterField = new JTextField();
+        filterField.setMaximumSize(new Dimension(Integer.MAX_VALUE, ITEM_HEIGHT));
+        filterField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                filter(filterField.getText());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                filter(filterField.getText());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                filter(filterField.getText());
+            }
+        });
+        header.add(filterField);
+
+        header.add(Box.createHorizontalStrut(10));
+
+        // 按主键缓存的对象数，0为不缓存，只在选择了自定义主键时生效
+        header.add(new JLabel("cache size"));
+
+        header.add(Box.createHorizontalStrut(10));
+
+        cacheSizeSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 100000, 16));
+        cacheSizeSpinner.setMaximumSize(new Dimension(80, ITEM_HEIGHT));
+        header.add(cacheSizeSpinner);
+
+        header.add(Box.createHorizontalStrut(10));
 
-        JLabel label2 = new JLabel("name");
-        label2.setPreferredSize(new Dimension(80, ITEM_HEIGHT));
-        header.add(label2);
+        // upsert主键冲突时的处理方式，UPDATE需要Android 11及以上
+        header.add(new JLabel("on conflict"));
 
-        header.add(Box.createHorizontalGlue());
+        header.add(Box.createHorizontalStrut(10));
 
-        JLabel label3 = new JLabel("primary key");
-        header.add(label3);
+        conflictBox = new JComboBox<>(new String[]{GenerateInfo.CONFLICT_REPLACE, GenerateInfo.CONFLICT_UPDATE});
+        conflictBox.setMaximumSize(new Dimension(100, ITEM_HEIGHT));
+        header.add(conflictBox);
 
         header.add(Box.createHorizontalStrut(10));
     }
 
-    private ArrayList<JCheckBox> checkBoxes = new ArrayList<>();
-    private ButtonGroup buttonGroup = new ButtonGroup();
-    private int priKeyPosition;
-    private void createItem(int position) {
-        JPanel panel = new JPanel();
-        panel.setLayout(new BoxLayout(panel, BoxLayout.X_AXIS));
-        panel.setMaximumSize(new Dimension(Integer.MAX_VALUE, ITEM_HEIGHT));
-
-        panel.add(Box.createHorizontalStrut(10));
-
-        JCheckBox checkBox1 = new JCheckBox();
-        checkBox1.setPreferredSize(new Dimension(40, ITEM_HEIGHT));
-        checkBox1.setSelected(true);
-        if(position >= 0) {
-            checkBoxes.add(checkBox1);
-        } else {
-            checkBox1.setEnabled(false);
-        }
-        panel.add(checkBox1);
-
-        JLabel label2 = new JLabel();
-        if(position >= 0) {
-            label2.setText(clazz.getFields()[position].getName());
-        } else {
-            label2.setText("_ID [default]");
-            label2.setEnabled(false);
-        }
-        label2.setPreferredSize(new Dimension(80, ITEM_HEIGHT));
-        panel.add(label2);
-
-        panel.add(Box.createHorizontalGlue());
-
-        JRadioButton radioButton = new JRadioButton();
-        radioButton.addChangeListener(e -> {
-            if(radioButton.isSelected()) {
-                priKeyPosition = position;
+    private JSpinner cacheSizeSpinner;
+    private JComboBox<String> conflictBox;
+
+    private void filter(String text) {
+        String keyword = text.trim().toLowerCase();
+        if (keyword.isEmpty()) {
+            sorter.setRowFilter(null);
+            return;
+        }
+        sorter.setRowFilter(new RowFilter<FieldTableModel, Integer>() {
+            @Override
+            public boolean include(Entry<? extends FieldTableModel, ? extends Integer> entry) {
+                return entry.getIdentifier() == 0
+                        || entry.getStringValue(FieldTableModel.COLUMN_NAME).toLowerCase().contains(keyword);
             }
         });
-        buttonGroup.add(radioButton);
-        if(position == -1) {
-            radioButton.setSelected(true);
-        }
-        panel.add(radioButton);
+    }
+
+    private static class RadioButtonRenderer extends JRadioButton implements TableCellRenderer {
 
-        panel.add(Box.createHorizontalStrut(10));
+        RadioButtonRenderer() {
+            setHorizontalAlignment(SwingConstants.CENTER);
+        }
 
-        list.add(panel);
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                       boolean hasFocus, int row, int column) {
+            setSelected(Boolean.TRUE.equals(value));
+            setBackground(isSelected ? table.getSelectionBackground() : table.getBackground());
+            return this;
+        }
     }
 
     private void createFooter() {
@@ -125,33 +201,284 @@ public class ColumnDialog extends JDialog {
 
         cbAll = new JCheckBox("use all");
         cbAll.setSelected(true);
-        cbAll.addChangeListener(e -> {
-            for (JCheckBox checkBox : checkBoxes) {
-                checkBox.setSelected(cbAll.isSelected());
-            }
-        });
+        cbAll.addActionListener(e -> tableModel.setAllUsed(cbAll.isSelected()));
         footer.add(cbAll);
+
+        footer.add(Box.createHorizontalGlue());
+
+        indexLabel = new JLabel();
+        footer.add(indexLabel);
+
+        footer.add(Box.createHorizontalStrut(10));
+
+        projectionLabel = new JLabel();
+        footer.add(projectionLabel);
+
+        footer.add(Box.createHorizontalStrut(10));
+
+        JButton indexButton = new JButton("add index");
+        indexButton.addActionListener(e -> addCompositeIndex());
+        footer.add(indexButton);
+
+        footer.add(Box.createHorizontalStrut(10));
+
+        JButton projectionButton = new JButton("add projection");
+        projectionButton.addActionListener(e -> addProjection());
+        footer.add(projectionButton);
+
+        footer.add(Box.createHorizontalStrut(10));
+
+        JButton optionsButton = new JButton("db options");
+        optionsButton.addActionListener(e -> editDatabaseOptions());
+        footer.add(optionsButton);
+
+        footer.add(Box.createHorizontalStrut(10));
+    }
+
+    private ArrayList<ProjectionInfo> projections = new ArrayList<>();
+    private JLabel projectionLabel;
+
+    /**
+     * 添加查询投影，即只查询部分字段的轻量查询
+     */
+    private void addProjection() {
+        List<FieldInfo> allFields = entity.getFields();
+        String[] names = new String[allFields.size()];
+        for (int i = 0; i < allFields.size(); i++) {
+            names[i] = allFields.get(i).getName();
+        }
+
+        JTextField nameField = new JTextField(entity.getName() + "Brief");
+        JList<String> fieldList = new JList<>(names);
+        fieldList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+
+        JPanel panel = new JPanel(new BorderLayout(0, 5));
+        panel.add(nameField, BorderLayout.NORTH);
+        panel.add(new JScrollPane(fieldList), BorderLayout.CENTER);
+
+        int result = JOptionPane.showConfirmDialog(this, panel, "add projection", JOptionPane.OK_CANCEL_OPTION);
+        if (result != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        String name = nameField.getText().trim();
+        int[] indices = fieldList.getSelectedIndices();
+        if (!isJavaIdentifier(name) || indices.length == 0) {
+            JOptionPane.showMessageDialog(this, "projection need a class name and at least one field");
+            return;
+        }
+
+        ArrayList<FieldInfo> fields = new ArrayList<>();
+        for (int index : indices) {
+            fields.add(allFields.get(index));
+        }
+        projections.add(new ProjectionInfo(name, fields));
+
+        StringBuilder sb = new StringBuilder("projections: ");
+        for (int i = 0; i < projections.size(); i++) {
+            sb.append(i == 0 ? "" : ", ").append(projections.get(i).getName());
+        }
+        projectionLabel.setText(sb.toString());
+    }
+
+    private ArrayList<IndexInfo> compositeIndexes = new ArrayList<>();
+    private JLabel indexLabel;
+
+    /**
+     * 添加多列组合索引，列顺序按字段声明顺序
+     */
+    private void addCompositeIndex() {
+        List<FieldInfo> allFields = entity.getFields();
+        String[] names = new String[allFields.size()];
+        for (int i = 0; i < allFields.size(); i++) {
+            names[i] = allFields.get(i).getName();
+        }
+
+        JList<String> fieldList = new JList<>(names);
+        fieldList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        JCheckBox uniqueCheckBox = new JCheckBox("unique");
+
+        JPanel panel = new JPanel(new BorderLayout(0, 5));
+        panel.add(new JScrollPane(fieldList), BorderLayout.CENTER);
+        panel.add(uniqueCheckBox, BorderLayout.SOUTH);
+
+        int result = JOptionPane.showConfirmDialog(this, panel, "add index", JOptionPane.OK_CANCEL_OPTION);
+        if (result != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        int[] indices = fieldList.getSelectedIndices();
+        if (indices.length == 0) {
+            JOptionPane.showMessageDialog(this, "index need at least one field");
+            return;
+        }
+
+        ArrayList<FieldInfo> fields = new ArrayList<>();
+        for (int index : indices) {
+            fields.add(allFields.get(index));
+        }
+        compositeIndexes.add(new IndexInfo(fields, uniqueCheckBox.isSelected()));
+        indexLabel.setText("indexes: " + compositeIndexes.size());
+    }
+
+    private DatabaseOptions databaseOptions = new DatabaseOptions();
+
+    /**
+     * 编辑数据库连接配置，生成到DatabaseHelper的onConfigure方法中，数值为0时使用SQLite默认值。
+     * cache_size、temp_store、mmap_size在Android 11以下只作用于主连接，见CodeFactory.genConfigureCode
+     */
+    private void editDatabaseOptions() {
+        JCheckBox walCheckBox = new JCheckBox("write-ahead logging", databaseOptions.isWalEnabled());
+        JComboBox<String> synchronousBox = new JComboBox<>(new String[]{"DEFAULT", "OFF", "NORMAL", "FULL"});
+        synchronousBox.setSelectedItem(databaseOptions.getSynchronous());
+        JTextField pageSizeField = new JTextField(String.valueOf(databaseOptions.getPageSize()));
+        JTextField cacheSizeField = new JTextField(String.valueOf(databaseOptions.getCacheSize()));
+        JComboBox<String> tempStoreBox = new JComboBox<>(new String[]{"DEFAULT", "FILE", "MEMORY"});
+        tempStoreBox.setSelectedItem(databaseOptions.getTempStore());
+        JTextField mmapSizeField = new JTextField(String.valueOf(databaseOptions.getMmapSize()));
+
+        JPanel panel = new JPanel(new GridLayout(0, 2, 5, 5));
+        panel.add(walCheckBox);
+        panel.add(new JLabel());
+        panel.add(new JLabel("synchronous"));
+        panel.add(synchronousBox);
+        panel.add(new JLabel("page_size (bytes)"));
+        panel.add(pageSizeField);
+        panel.add(new JLabel("cache_size (pages, <0 KiB)"));
+        panel.add(cacheSizeField);
+        panel.add(new JLabel("temp_store"));
+        panel.add(tempStoreBox);
+        panel.add(new JLabel("mmap_size (bytes)"));
+        panel.add(mmapSizeField);
+
+        int result = JOptionPane.showConfirmDialog(this, panel, "db options", JOptionPane.OK_CANCEL_OPTION);
+        if (result != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        DatabaseOptions options = new DatabaseOptions();
+        try {
+            options.setPageSize(Integer.parseInt(pageSizeField.getText().trim()));
+            options.setCacheSize(Integer.parseInt(cacheSizeField.getText().trim()));
+            options.setMmapSize(Long.parseLong(mmapSizeField.getText().trim()));
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "page_size, cache_size and mmap_size need a number");
+            return;
+        }
+        int pageSize = options.getPageSize();
+        if (pageSize != DatabaseOptions.DEFAULT && (pageSize < 512 || pageSize > 65536 || (pageSize & (pageSize - 1)) != 0)) {
+            JOptionPane.showMessageDialog(this, "page_size need a power of two between 512 and 65536");
+            return;
+        }
+        options.setWalEnabled(walCheckBox.isSelected());
+        options.setSynchronous((String) synchronousBox.getSelectedItem());
+        options.setTempStore((String) tempStoreBox.getSelectedItem());
+        databaseOptions = options;
+    }
+
+    private static boolean isJavaIdentifier(String name) {
+        if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            return false;
+        }
+        for (char c : name.toCharArray()) {
+            if (!Character.isJavaIdentifierPart(c)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private void performGenerate() {
-        ArrayList<PsiField> fields = new ArrayList<>();
-        PsiField priKeyField = null;
-        for (int i = 0; i < checkBoxes.size(); i++) {
-            if(checkBoxes.get(i).isSelected()) {
-                fields.add(clazz.getFields()[i]);
-                if(i == priKeyPosition) {
-                    priKeyField = clazz.getFields()[i];
+        if (table.isEditing()) {
+            table.getCellEditor().stopCellEditing();
+        }
+
+        // 原字段到生成字段的映射，生成字段带有自定义的列类型，只包含已选择生成的
+        Map<FieldInfo, FieldInfo> selected = new HashMap<>();
+        ArrayList<FieldInfo> fields = new ArrayList<>();
+        FieldInfo priKeyField = null;
+        for (int i = 0; i < entity.getFields().size(); i++) {
+            int row = i + 1;
+            if(tableModel.isUsed(row)) {
+                FieldInfo field = tableModel.getField(row);
+                selected.put(entity.getFields().get(i), field);
+                fields.add(field);
+                if(row == tableModel.getPriKeyRow()) {
+                    priKeyField = field;
                 }
             }
-            buttonGroup.getSelection();
+        }
+        // 没有适配器的类型不能生成，需要先自定义TypeAdapter
+        for (FieldInfo field : fields) {
+            try {
+                TypeAdapters.get(field);
+            } catch (IllegalArgumentException e) {
+                JOptionPane.showMessageDialog(this, e.getMessage());
+                return;
+            }
+        }
+        // 集合等存为BLOB的字段不能按值查询，不能作为主键
+        if (priKeyField != null && TypeAdapters.get(priKeyField).genSelectionArg(priKeyField, "key") == null) {
+            JOptionPane.showMessageDialog(this, "primary key can not be a " + priKeyField.getType() + " field");
+            return;
+        }
+
+        // 单列索引，主键本身已有索引
+        ArrayList<IndexInfo> indexes = new ArrayList<>();
+        for (int i = 0; i < entity.getFields().size(); i++) {
+            int row = i + 1;
+            boolean unique = tableModel.isUnique(row);
+            if(!tableModel.isUsed(row) || row == tableModel.getPriKeyRow()) {
+                continue;
+            }
+            if(unique || tableModel.isIndexed(row)) {
+                ArrayList<FieldInfo> indexFields = new ArrayList<>();
+                indexFields.add(tableModel.getField(row));
+                indexes.add(new IndexInfo(indexFields, unique));
+            }
+        }
+        // 组合索引只保留所有列都已选择生成的
+        for (IndexInfo index : compositeIndexes) {
+            if (selected.keySet().containsAll(index.getFields())) {
+                indexes.add(new IndexInfo(mapFields(index.getFields(), selected), index.isUnique()));
+            }
         }
 
+        // 投影只保留已选择生成的列
+        ArrayList<ProjectionInfo> selectedProjections = new ArrayList<>();
+        for (ProjectionInfo projection : projections) {
+            ArrayList<FieldInfo> projectionFields = mapFields(projection.getFields(), selected);
+            if (!projectionFields.isEmpty()) {
+                selectedProjections.add(new ProjectionInfo(projection.getName(), projectionFields));
+            }
+        }
+
+        GenerateInfo info = new GenerateInfo();
+        info.setFields(fields);
+        info.setPriKeyFields(priKeyField);
+        info.setProjections(selectedProjections);
+        info.setIndexes(indexes);
+        info.setDatabaseOptions(databaseOptions);
+        info.setCacheSize((Integer) cacheSizeSpinner.getValue());
+        info.setConflictStrategy((String) conflictBox.getSelectedItem());
+
         if(onGenerateListener != null) {
-            onGenerateListener.onGenerate(fields, priKeyField);
+            onGenerateListener.onGenerate(info);
         }
         dispose();
     }
 
+    private static ArrayList<FieldInfo> mapFields(List<FieldInfo> fields, Map<FieldInfo, FieldInfo> selected) {
+        ArrayList<FieldInfo> result = new ArrayList<>();
+        for (FieldInfo field : fields) {
+            FieldInfo mapped = selected.get(field);
+            if (mapped != null) {
+                result.add(mapped);
+            }
+        }
+        return result;
+    }
+
     private OnGenerateListener onGenerateListener;
 
     public void setOnGenerateListener(OnGenerateListener onGenerateListener) {
@@ -159,6 +486,6 @@ public class ColumnDialog extends JDialog {
     }
 
     public interface OnGenerateListener {
-        void onGenerate(ArrayList<PsiField> fields, PsiField priKeyField);
+        void onGenerate(GenerateInfo info);
     }
 }
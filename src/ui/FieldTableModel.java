@@ -0,0 +1,177 @@
+package ui;
+
+import entity.FieldInfo;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 字段选择表格的数据，第0行为默认的_ID主键，其余每行对应一个字段。
+ * 字段列表在创建时取一次，表格只绘制可见行，字段很多时也能立即打开
+ */
+class FieldTableModel extends AbstractTableModel {
+
+    static final int COLUMN_USE = 0;
+    static final int COLUMN_NAME = 1;
+    static final int COLUMN_TYPE = 2;
+    static final int COLUMN_DB_TYPE = 3;
+    static final int COLUMN_INDEX = 4;
+    static final int COLUMN_UNIQUE = 5;
+    static final int COLUMN_PRIMARY_KEY = 6;
+
+    private static final String[] COLUMN_NAMES = {"use", "name", "type", "column type", "index", "unique", "primary key"};
+
+    /**
+     * 列类型可选值，auto为按字段类型推断
+     */
+    static final String DB_TYPE_AUTO = "auto";
+    static final String[] DB_TYPES = {DB_TYPE_AUTO, "INTEGER", "REAL", "TEXT", "NUMERIC", "BLOB"};
+
+    private final List<Row> rows = new ArrayList<>();
+    private int priKeyRow;
+
+    FieldTableModel(List<FieldInfo> fields) {
+        rows.add(new Row(null)); // default _ID
+        for (FieldInfo field : fields) {
+            rows.add(new Row(field));
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case COLUMN_USE:
+            case COLUMN_INDEX:
+            case COLUMN_UNIQUE:
+            case COLUMN_PRIMARY_KEY:
+                return Boolean.class;
+            default:
+                return String.class;
+        }
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int column) {
+        if (column == COLUMN_PRIMARY_KEY) {
+            return true;
+        }
+        // 默认_ID只能选择是否作为主键
+        return rowIndex > 0 && column != COLUMN_NAME && column != COLUMN_TYPE;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int column) {
+        Row row = rows.get(rowIndex);
+        switch (column) {
+            case COLUMN_USE:
+                return row.field == null || row.use;
+            case COLUMN_NAME:
+                return row.field == null ? "_ID [default]" : row.field.getName();
+            case COLUMN_TYPE:
+                return row.field == null ? "long" : row.field.getType();
+            case COLUMN_DB_TYPE:
+                return row.field == null ? "INTEGER" : row.dbType;
+            case COLUMN_INDEX:
+                return row.index;
+            case COLUMN_UNIQUE:
+                return row.unique;
+            case COLUMN_PRIMARY_KEY:
+                return rowIndex == priKeyRow;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public void setValueAt(Object value, int rowIndex, int column) {
+        Row row = rows.get(rowIndex);
+        switch (column) {
+            case COLUMN_USE:
+                row.use = (Boolean) value;
+                break;
+            case COLUMN_DB_TYPE:
+                row.dbType = (String) value;
+                break;
+            case COLUMN_INDEX:
+                row.index = (Boolean) value;
+                break;
+            case COLUMN_UNIQUE:
+                row.unique = (Boolean) value;
+                break;
+            case COLUMN_PRIMARY_KEY:
+                // 单选，取消勾选时保持原主键
+                if ((Boolean) value && rowIndex != priKeyRow) {
+                    int oldRow = priKeyRow;
+                    priKeyRow = rowIndex;
+                    fireTableCellUpdated(oldRow, column);
+                }
+                break;
+            default:
+                return;
+        }
+        fireTableCellUpdated(rowIndex, column);
+    }
+
+    void setAllUsed(boolean use) {
+        for (int i = 1; i < rows.size(); i++) {
+            rows.get(i).use = use;
+        }
+        fireTableRowsUpdated(1, rows.size() - 1);
+    }
+
+    /**
+     * 行对应的字段，第0行默认_ID返回null。选择了列类型时返回带列类型的字段
+     */
+    FieldInfo getField(int rowIndex) {
+        Row row = rows.get(rowIndex);
+        if (row.field == null || row.dbType.equals(DB_TYPE_AUTO)) {
+            return row.field;
+        }
+        return row.field.withColumnType(row.dbType);
+    }
+
+    boolean isUsed(int rowIndex) {
+        return rows.get(rowIndex).use;
+    }
+
+    boolean isIndexed(int rowIndex) {
+        return rows.get(rowIndex).index;
+    }
+
+    boolean isUnique(int rowIndex) {
+        return rows.get(rowIndex).unique;
+    }
+
+    int getPriKeyRow() {
+        return priKeyRow;
+    }
+
+    private static final class Row {
+        final FieldInfo field;
+        boolean use = true;
+        // 二级索引，unique同时也会建立索引
+        boolean index;
+        boolean unique;
+        String dbType = DB_TYPE_AUTO;
+
+        Row(FieldInfo field) {
+            this.field = field;
+        }
+    }
+}
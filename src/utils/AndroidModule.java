@@ -0,0 +1,69 @@
+package utils;
+
+import com.intellij.openapi.vfs.VirtualFile;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Android模块的目录和包名，由AndroidProjectService解析并缓存。
+ * 包名优先使用build.gradle中的namespace，没有时使用AndroidManifest.xml中的package
+ */
+public final class AndroidModule {
+
+    private final VirtualFile root;
+    private final String packageName;
+    private final List<VirtualFile> sourceRoots;
+
+    AndroidModule(VirtualFile root, String packageName, List<VirtualFile> sourceRoots) {
+        this.root = root;
+        this.packageName = packageName;
+        this.sourceRoots = Collections.unmodifiableList(sourceRoots);
+    }
+
+    public VirtualFile getRoot() {
+        return root;
+    }
+
+    /**
+     * 模块包名，没有namespace和manifest时为null
+     */
+    public String getPackageName() {
+        return packageName;
+    }
+
+    /**
+     * 源码根目录，如 src/main/java、src/debug/kotlin
+     */
+    public List<VirtualFile> getSourceRoots() {
+        return sourceRoots;
+    }
+
+    /**
+     * 模块包名对应的源码目录 ...\src\main\java\PACKAGE_NAME\，不存在时返回null
+     */
+    public VirtualFile getPackageDir() {
+        VirtualFile javaDir = root.findFileByRelativePath("src/main/java");
+        if (javaDir == null || packageName == null) {
+            return null;
+        }
+        return javaDir.findFileByRelativePath(packageName.replace('.', '/'));
+    }
+
+    /**
+     * 文件在模块源码目录中的包名，不在源码目录中时返回null
+     */
+    String getPackageName(VirtualFile dir) {
+        String path = dir.getPath();
+        for (VirtualFile sourceRoot : sourceRoots) {
+            String rootPath = sourceRoot.getPath();
+            if (path.equals(rootPath)) {
+                return "";
+            }
+            if (path.startsWith(rootPath + "/")) {
+                return path.substring(rootPath.length() + 1).replace('/', '.');
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,266 @@
+package utils;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 项目级的模块和包名缓存，批量生成时每个数据类、每个文件不再重复读取manifest和扫描路径。
+ * 支持多模块，模块包名优先使用Gradle的namespace。
+ * manifest、build.gradle变化，源码目录增删，或者已缓存的目录被删除、移动、重命名时清空缓存，
+ * 包目录下普通文件的增删改不影响缓存。需要在读操作中调用
+ *
+ * <pre>
+ * AndroidProjectService service = AndroidProjectService.getInstance(project);
+ * AndroidModule module = service.findModule(file);  // 文件所在模块
+ * String packageName = service.getPackageName(file);  // 文件所在包名
+ * </pre>
+ */
+public class AndroidProjectService implements Disposable {
+
+    private static final String MANIFEST = "AndroidManifest.xml";
+    private static final String[] GRADLE_FILES = {"build.gradle", "build.gradle.kts"};
+    private static final String[] SOURCE_DIRS = {"java", "kotlin"};
+
+    // namespace 'com.demo' / namespace = "com.demo"
+    private static final Pattern NAMESPACE = Pattern.compile("\\bnamespace\\s*=?\\s*[\"']([\\w.]+)[\"']");
+    private static final Pattern MANIFEST_PACKAGE = Pattern.compile("<manifest\\b[^>]*?\\spackage\\s*=\\s*[\"']([\\w.]+)[\"']");
+
+    private final Project project;
+    // 目录路径到所在模块，不在任何模块中的目录也缓存
+    private final ConcurrentHashMap<String, Optional<AndroidModule>> dirModules = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> dirPackageNames = new ConcurrentHashMap<>();
+    private volatile Optional<AndroidModule> appModule;
+
+    public AndroidProjectService(Project project) {
+        this.project = project;
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void before(List<? extends VFileEvent> events) {
+                for (VFileEvent event : events) {
+                    // 删除、移动、重命名前按原路径判断，原路径是配置文件或者缓存过的目录时失效
+                    if (!(event instanceof VFileContentChangeEvent)
+                            && (isConfigFile(event.getPath()) || isCachedPath(event.getPath()))) {
+                        invalidate();
+                        return;
+                    }
+                }
+            }
+
+            @Override
+            public void after(List<? extends VFileEvent> events) {
+                for (VFileEvent event : events) {
+                    // 新建、修改、移动和重命名后按新路径判断，只有配置文件和源码目录改变模块结构
+                    VirtualFile file = event.getFile();
+                    if (affectsModules(event.getPath()) || (file != null && affectsModules(file.getPath()))) {
+                        invalidate();
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    public static AndroidProjectService getInstance(Project project) {
+        return ServiceManager.getService(project, AndroidProjectService.class);
+    }
+
+    /**
+     * App模块，优先使用项目根目录下的app模块，没有时使用应用了com.android.application插件的模块
+     */
+    public AndroidModule getAppModule() {
+        Optional<AndroidModule> module = appModule;
+        if (module == null) {
+            module = Optional.ofNullable(resolveAppModule());
+            appModule = module;
+        }
+        return module.orElse(null);
+    }
+
+    /**
+     * 文件或目录所在的模块，不在模块中时返回null
+     */
+    public AndroidModule findModule(VirtualFile file) {
+        return findDirModule(file.isDirectory() ? file : file.getParent()).orElse(null);
+    }
+
+    /**
+     * 文件或目录所在的包名，按所在模块的源码目录计算
+     */
+    public String getPackageName(VirtualFile file) {
+        VirtualFile dir = file.isDirectory() ? file : file.getParent();
+        return dirPackageNames.computeIfAbsent(dir.getPath(), path -> {
+            AndroidModule module = findDirModule(dir).orElse(null);
+            String packageName = module == null ? null : module.getPackageName(dir);
+            // 不在已知源码目录中时按路径中的src/main/java截取
+            return packageName != null ? packageName : AndroidUtils.getFilePackageName(dir);
+        });
+    }
+
+    public void invalidate() {
+        dirModules.clear();
+        dirPackageNames.clear();
+        appModule = null;
+    }
+
+    @Override
+    public void dispose() {
+        invalidate();
+    }
+
+    private Optional<AndroidModule> findDirModule(VirtualFile dir) {
+        if (dir == null) {
+            return Optional.empty();
+        }
+        Optional<AndroidModule> module = dirModules.get(dir.getPath());
+        if (module == null) {
+            // 向上查找模块根目录，经过的目录都缓存
+            if (isModuleRoot(dir)) {
+                module = Optional.of(loadModule(dir));
+            } else if (dir.getPath().equals(project.getBasePath())) {
+                module = Optional.empty();
+            } else {
+                module = findDirModule(dir.getParent());
+            }
+            dirModules.put(dir.getPath(), module);
+        }
+        return module;
+    }
+
+    private AndroidModule resolveAppModule() {
+        String basePath = project.getBasePath();
+        VirtualFile baseDir = basePath == null ? null : LocalFileSystem.getInstance().findFileByPath(basePath);
+        if (baseDir == null) {
+            return null;
+        }
+        VirtualFile appDir = baseDir.findChild("app");
+        if (appDir != null && isModuleRoot(appDir)) {
+            return findDirModule(appDir).orElse(null);
+        }
+        for (VirtualFile child : baseDir.getChildren()) {
+            if (child.isDirectory() && isModuleRoot(child)) {
+                String gradleText = loadText(findGradleFile(child));
+                if (gradleText != null && gradleText.contains("android.application")) {
+                    return findDirModule(child).orElse(null);
+                }
+            }
+        }
+        // 单模块项目
+        return isModuleRoot(baseDir) ? findDirModule(baseDir).orElse(null) : null;
+    }
+
+    private static AndroidModule loadModule(VirtualFile root) {
+        String packageName = find(NAMESPACE, loadText(findGradleFile(root)));
+        if (packageName == null) {
+            packageName = find(MANIFEST_PACKAGE, loadText(root.findFileByRelativePath("src/main/" + MANIFEST)));
+        }
+
+        // src下每个source set的java和kotlin目录
+        ArrayList<VirtualFile> sourceRoots = new ArrayList<>();
+        VirtualFile srcDir = root.findChild("src");
+        if (srcDir != null) {
+            for (VirtualFile sourceSet : srcDir.getChildren()) {
+                for (String name : SOURCE_DIRS) {
+                    VirtualFile sourceRoot = sourceSet.isDirectory() ? sourceSet.findChild(name) : null;
+                    if (sourceRoot != null && sourceRoot.isDirectory()) {
+                        sourceRoots.add(sourceRoot);
+                    }
+                }
+            }
+        }
+        return new AndroidModule(root, packageName, sourceRoots);
+    }
+
+    private static boolean isModuleRoot(VirtualFile dir) {
+        return findGradleFile(dir) != null || dir.findFileByRelativePath("src/main/" + MANIFEST) != null;
+    }
+
+    private static VirtualFile findGradleFile(VirtualFile dir) {
+        for (String name : GRADLE_FILES) {
+            VirtualFile file = dir.findChild(name);
+            if (file != null) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isConfigFile(String path) {
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        if (name.equals(MANIFEST)) {
+            return true;
+        }
+        for (String gradleFile : GRADLE_FILES) {
+            if (name.equals(gradleFile)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 缓存中是否有该路径或其下的目录
+     */
+    private boolean isCachedPath(String path) {
+        // 包名缓存的目录也都在dirModules中
+        if (dirModules.containsKey(path)) {
+            return true;
+        }
+        String prefix = path + "/";
+        for (String dir : dirModules.keySet()) {
+            if (dir.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * manifest、gradle配置，以及src、src/main、src/main/java这样的源码目录
+     */
+    private static boolean affectsModules(String path) {
+        if (isConfigFile(path)) {
+            return true;
+        }
+        String[] parts = path.split("/");
+        int n = parts.length;
+        return parts[n - 1].equals("src")
+                || (n >= 2 && parts[n - 2].equals("src"))
+                || (n >= 3 && parts[n - 3].equals("src") && Arrays.asList(SOURCE_DIRS).contains(parts[n - 1]));
+    }
+
+    private static String loadText(VirtualFile file) {
+        if (file == null) {
+            return null;
+        }
+        try {
+            return VfsUtilCore.loadText(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String find(Pattern pattern, String text) {
+        if (text == null) {
+            return null;
+        }
+        Matcher matcher = pattern.matcher(text);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+}
@@ -1,13 +1,7 @@
 package utils;
 
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.psi.PsiFile;
-import com.intellij.psi.PsiManager;
-import com.intellij.psi.xml.XmlDocument;
-
-import java.io.File;
 
 public class AndroidUtils {
 
@@ -15,32 +9,18 @@ public class AndroidUtils {
      * 获取App对应的包名根目录
      */
     public static VirtualFile getAppPackageBaseDir(Project project) {
-        String path = project.getBasePath() + File.separator +
-                "app" + File.separator +
-                "src" + File.separator +
-                "main" + File.separator +
-                "java" + File.separator +
-                getAppPackageName(project).replace(".", File.separator);
-        return LocalFileSystem.getInstance().findFileByPath(path);
-    }
-
-    public static PsiFile getManifestFile(Project project) {
-        String path = project.getBasePath() + File.separator +
-                "app" + File.separator +
-                "src" + File.separator +
-                "main" + File.separator +
-                "AndroidManifest.xml";
-        VirtualFile virtualFile = LocalFileSystem.getInstance().findFileByPath(path);
-        if(virtualFile == null) return null;
-        return PsiManager.getInstance(project).findFile(virtualFile);
+        AndroidModule module = AndroidProjectService.getInstance(project).getAppModule();
+        return module == null ? null : module.getPackageDir();
     }
 
     public static String getAppPackageName(Project project) {
-        PsiFile manifestFile = getManifestFile(project);
-        XmlDocument xml = (XmlDocument) manifestFile.getFirstChild();
-        return xml.getRootTag().getAttribute("package").getValue();
+        AndroidModule module = AndroidProjectService.getInstance(project).getAppModule();
+        return module == null ? null : module.getPackageName();
     }
 
+    /**
+     * 按路径中的src/main/java截取包名，项目中的文件使用AndroidProjectService#getPackageName
+     */
     public static String getFilePackageName(VirtualFile dir) {
         if(!dir.isDirectory()) {
             // 非目录的取所在文件夹路径
@@ -1,8 +1,17 @@
 package utils;
 
 import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassType;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiField;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.PsiType;
+import entity.EntityInfo;
+import entity.FieldInfo;
+
+import java.util.ArrayList;
 
 public class PluginUtils {
 
@@ -18,4 +27,31 @@ public class PluginUtils {
         return null;
     }
 
+    /**
+     * 将PSI数据类转为不依赖PSI的描述模型，之后的代码生成都基于此模型。
+     * 只取本类声明的非static字段，serialVersionUID、TAG等常量不作为列
+     */
+    public static EntityInfo getEntityInfo(PsiClass clazz) {
+        ArrayList<FieldInfo> fields = new ArrayList<>();
+        for (PsiField field : clazz.getFields()) {
+            if (field.hasModifierProperty(PsiModifier.STATIC)) {
+                continue;
+            }
+            PsiType type = field.getType();
+            fields.add(new FieldInfo(field.getName(), type.getPresentableText(), null, getEnumClass(type),
+                    type instanceof PsiClassType ? type.getCanonicalText() : null));
+        }
+        PsiFile file = clazz.getContainingFile();
+        String packageName = file instanceof PsiJavaFile ? ((PsiJavaFile) file).getPackageName()
+                : AndroidProjectService.getInstance(clazz.getProject()).getPackageName(file.getVirtualFile());
+        return new EntityInfo(clazz.getName(), packageName, fields);
+    }
+
+    private static String getEnumClass(PsiType type) {
+        if (!(type instanceof PsiClassType)) {
+            return null;
+        }
+        PsiClass psiClass = ((PsiClassType) type).resolve();
+        return psiClass != null && psiClass.isEnum() ? psiClass.getQualifiedName() : null;
+    }
 }
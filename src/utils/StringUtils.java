@@ -1,8 +1,14 @@
 package utils;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 
 public class StringUtils {
+
+	private static final List<String> IMPLICIT_TYPES = Arrays.asList("int", "long", "short", "byte", "char",
+			"boolean", "float", "double", "String", "Integer", "Long", "Short", "Byte", "Character", "Boolean",
+			"Float", "Double", "Number", "Object", "CharSequence");
 	
 	/**
 	 * 将string按需要格式化,前面加缩进符,后面加换行符
@@ -24,6 +30,13 @@ public class StringUtils {
 		return key.substring(0, 1).toUpperCase(Locale.getDefault()) + key.substring(1);
 	}
 
+	/**
+	 * 是否为基础类型或java.lang中的常用类型，这些类型在生成的代码中不需要导入或完整类名
+	 */
+	public static boolean isImplicitType(String type) {
+		return IMPLICIT_TYPES.contains(type);
+	}
+
 	/**
 	 * 驼峰转下划线命名
      */